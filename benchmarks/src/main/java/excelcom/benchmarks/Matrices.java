@@ -0,0 +1,33 @@
+package excelcom.benchmarks;
+
+/**
+ * Creates the matrices used as benchmark input
+ */
+public final class Matrices {
+
+    private Matrices() {
+    }
+
+    /**
+     * Parses a shape like "1000x20"
+     * @return [rows, columns]
+     */
+    public static int[] parseShape(String shape) {
+        String[] splits = shape.split("x");
+        return new int[]{Integer.parseInt(splits[0]), Integer.parseInt(splits[1])};
+    }
+
+    /**
+     * Creates a matrix with doubles in even and strings in odd columns, like a typical export
+     */
+    public static Object[][] create(String shape) {
+        int[] size = parseShape(shape);
+        Object[][] matrix = new Object[size[0]][size[1]];
+        for (int i = 0; i < size[0]; i++) {
+            for (int j = 0; j < size[1]; j++) {
+                matrix[i][j] = j % 2 == 0 ? (Object) (i * 0.5 + j) : "text" + (i % 100);
+            }
+        }
+        return matrix;
+    }
+}
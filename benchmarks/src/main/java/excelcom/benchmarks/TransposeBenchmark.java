@@ -0,0 +1,34 @@
+package excelcom.benchmarks;
+
+import excelcom.util.Util;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Util.transpose for different matrix shapes.
+ * Run with "-prof gc" to get the allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TransposeBenchmark {
+
+    @Param({"10x10", "1000x20", "100000x20", "1000000x20"})
+    String shape;
+
+    Object[][] matrix;
+
+    @Setup
+    public void setup() {
+        matrix = Matrices.create(shape);
+    }
+
+    @Benchmark
+    public Object[][] transpose() {
+        return Util.transpose(matrix);
+    }
+}
@@ -0,0 +1,82 @@
+package excelcom.benchmarks;
+
+import excelcom.util.Util;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the address and conversion helpers in Util.
+ * Run with "-prof gc" to get the allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RangeState {
+        @Param({"C3", "A1:C2", "AA10:CB20", "XFA1000:XFD1048576", "$A$1:$C$2", "A:C", "'Sheet 1'!A1:B2", "R1C1:R2C3"})
+        String range;
+    }
+
+    @State(Scope.Benchmark)
+    public static class ColumnState {
+        @Param({"1", "27", "16384"})
+        int column;
+    }
+
+    @State(Scope.Benchmark)
+    public static class BoundsState {
+        @Param({"0", "1000", "1048575"})
+        int row;
+    }
+
+    /**
+     * Strings need OleAut32 for allocating the BSTR and can be measured on Windows only
+     */
+    @State(Scope.Benchmark)
+    public static class VariantState {
+        @Param({"int", "double", "boolean", "date", "string"})
+        String type;
+        Object value;
+
+        @Setup
+        public void setup() {
+            if (type.equals("int")) {
+                value = 123;
+            } else if (type.equals("double")) {
+                value = 123.5;
+            } else if (type.equals("boolean")) {
+                value = true;
+            } else if (type.equals("date")) {
+                value = new Date(0);
+            } else {
+                value = "test äöüß";
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] getRangeSize(RangeState state) {
+        return Util.getRangeSize(state.range);
+    }
+
+    @Benchmark
+    public String getColumnName(ColumnState state) {
+        return Util.getColumnName(state.column);
+    }
+
+    @Benchmark
+    public String boundsToRange(BoundsState state) {
+        return Util.boundsToRange(state.row, 2, state.row, 19);
+    }
+
+    @Benchmark
+    public Object createVariantFromObject(VariantState state) {
+        return Util.createVariantFromObject(state.value);
+    }
+}
@@ -0,0 +1,105 @@
+package excelcom.benchmarks;
+
+import excelcom.api.ExcelConnection;
+import excelcom.api.RangeRef;
+import excelcom.api.RowCursor;
+import excelcom.api.Workbook;
+import excelcom.api.Worksheet;
+import excelcom.dispatch.CellMatrix;
+import excelcom.dispatch.SimulatedExcel;
+import excelcom.util.Util;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading and writing content of a worksheet on a simulated excel instance without latency,
+ * so only the work done by excelcom is measured. Runs on any platform.
+ * Run with "-prof gc" to get the allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class WorksheetBenchmark {
+
+    @Param({"10x10", "1000x20", "100000x20", "1000000x20"})
+    String shape;
+
+    ExcelConnection connection;
+    Worksheet worksheet;
+    Object[][] content;
+    String range;
+    RangeRef block;
+    double[][] numbers;
+
+    @Setup
+    public void setup() {
+        connection = ExcelConnection.connect(new SimulatedExcel());
+        Workbook workbook = connection.newWorkbook(new File("benchmark.xlsx"));
+        worksheet = workbook.addWorksheet("benchmark");
+        content = Matrices.create(shape);
+        range = Util.boundsToRange(0, 0, content.length - 1, content[0].length - 1);
+        worksheet.setContent(range, content);
+        block = RangeRef.parse(range);
+        numbers = new double[block.getRowCount()][block.getColumnCount()];
+        for (int row = 0; row < numbers.length; row++) {
+            for (int column = 0; column < numbers[row].length; column++) {
+                numbers[row][column] = row * 0.5 + column;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        connection.quit();
+    }
+
+    @Benchmark
+    public void setContent() {
+        worksheet.setContent(range, content);
+    }
+
+    @Benchmark
+    public void setBlock() {
+        worksheet.setBlock(block, numbers);
+    }
+
+    @Benchmark
+    public Object[][] getContent() {
+        return worksheet.getContent(range);
+    }
+
+    @Benchmark
+    public double[] readDoubleColumn() {
+        return worksheet.readDoubleColumn(RangeRef.of(0, 0, block.getLastRow(), 0), null);
+    }
+
+    @Benchmark
+    public long readRows() {
+        long cells = 0;
+        try (RowCursor cursor = worksheet.getRowCursor(block, 10000, true)) {
+            while (cursor.hasNext()) {
+                cells += cursor.next().length;
+            }
+        }
+        return cells;
+    }
+
+    @Benchmark
+    public double sumCellMatrix() {
+        CellMatrix matrix = worksheet.getCellMatrix(block);
+        try {
+            double sum = 0;
+            for (int row = 0; row < matrix.getRowCount(); row++) {
+                sum += matrix.getDouble(row, 0);
+            }
+            return sum;
+        } finally {
+            matrix.close();
+        }
+    }
+}
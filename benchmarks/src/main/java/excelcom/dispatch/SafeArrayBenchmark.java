@@ -0,0 +1,47 @@
+package excelcom.dispatch;
+
+import com.sun.jna.platform.win32.OaIdl;
+import excelcom.benchmarks.Matrices;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the SAFEARRAY for Worksheet.setContent(String, Object[][]) and the typed
+ * SAFEARRAY for Worksheet.setBlock(RangeRef, double[][]).
+ * Needs OleAut32 and can be run on Windows only.
+ * Run with "-prof gc" to get the allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SafeArrayBenchmark {
+
+    @Param({"10x10", "1000x20", "100000x20", "1000000x20"})
+    String shape;
+
+    Object[][] content;
+    TypedBlock numbers;
+
+    @Setup
+    public void setup() {
+        content = Matrices.create(shape);
+        int[] size = Matrices.parseShape(shape);
+        numbers = TypedBlock.ofDoubles(size[0], size[1], new double[size[0] * size[1]]);
+    }
+
+    @Benchmark
+    public void toSafeArray() {
+        OaIdl.SAFEARRAY sa = ComDispatch.toSafeArray(content);
+        sa.destroy();
+    }
+
+    @Benchmark
+    public void typedSafeArray() {
+        OaIdl.SAFEARRAY sa = ComDispatch.toSafeArray(numbers);
+        sa.destroy();
+    }
+}
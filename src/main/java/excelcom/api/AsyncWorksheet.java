@@ -0,0 +1,162 @@
+package excelcom.api;
+
+import excelcom.dispatch.ComThread;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade of a {@link Worksheet}. Every call is queued on the COM thread of the connection and returns
+ * immediately, so the calling thread never blocks on COM. Calls are executed in the order they were made,
+ * independent calls can be issued without waiting for the previous ones:
+ *
+ * <pre>
+ * AsyncWorksheet async = connection.async(worksheet);
+ * async.setContent("A1:B2", content);
+ * CompletableFuture&lt;Object[][]&gt; values = async.getContent("C1:C100");
+ * </pre>
+ *
+ * Failures complete the future exceptionally with the {@link ExcelException} the worksheet threw.
+ */
+public class AsyncWorksheet {
+
+    private final Worksheet worksheet;
+    private final ComThread comThread;
+
+    AsyncWorksheet(Worksheet worksheet, ComThread comThread) {
+        this.worksheet = worksheet;
+        this.comThread = comThread;
+    }
+
+    /**
+     * @return the synchronous worksheet, its calls block until they are executed on the COM thread
+     */
+    public Worksheet getWorksheet() {
+        return worksheet;
+    }
+
+    /**
+     * Executes multiple calls as one task on the COM thread, e.g. to read a value and write depending on it
+     * @param task task using the worksheet
+     * @return future of the result of the task
+     */
+    public <T> CompletableFuture<T> submit(Function<Worksheet, T> task) {
+        return comThread.submit(() -> task.apply(worksheet));
+    }
+
+    /**
+     * @see Worksheet#getName()
+     */
+    public CompletableFuture<String> getName() {
+        return submit(Worksheet::getName);
+    }
+
+    /**
+     * @see Worksheet#getUnaryContent(CellRef)
+     */
+    public CompletableFuture<Object> getUnaryContent(CellRef cell) {
+        return submit(ws -> ws.getUnaryContent(cell));
+    }
+
+    /**
+     * @see Worksheet#getUnaryContent(String)
+     */
+    public CompletableFuture<Object> getUnaryContent(String range) {
+        return submit(ws -> ws.getUnaryContent(range));
+    }
+
+    /**
+     * @see Worksheet#setUnaryContent(CellRef, Object)
+     */
+    public CompletableFuture<Void> setUnaryContent(CellRef cell, Object content) {
+        return submit(ws -> {
+            ws.setUnaryContent(cell, content);
+            return null;
+        });
+    }
+
+    /**
+     * @see Worksheet#setUnaryContent(String, Object)
+     */
+    public CompletableFuture<Void> setUnaryContent(String range, Object content) {
+        return submit(ws -> {
+            ws.setUnaryContent(range, content);
+            return null;
+        });
+    }
+
+    /**
+     * @see Worksheet#getContent()
+     */
+    public CompletableFuture<Object[][]> getContent() {
+        return submit(Worksheet::getContent);
+    }
+
+    /**
+     * @see Worksheet#getContent(RangeRef)
+     */
+    public CompletableFuture<Object[][]> getContent(RangeRef range) {
+        return submit(ws -> ws.getContent(range));
+    }
+
+    /**
+     * @see Worksheet#getContent(String)
+     */
+    public CompletableFuture<Object[][]> getContent(String range) {
+        return submit(ws -> ws.getContent(range));
+    }
+
+    /**
+     * @see Worksheet#setContent(RangeRef, Object[][])
+     */
+    public CompletableFuture<Void> setContent(RangeRef range, Object[][] content) {
+        return submit(ws -> {
+            ws.setContent(range, content);
+            return null;
+        });
+    }
+
+    /**
+     * @see Worksheet#setContent(String, Object[][])
+     */
+    public CompletableFuture<Void> setContent(String range, Object[][] content) {
+        return submit(ws -> {
+            ws.setContent(range, content);
+            return null;
+        });
+    }
+
+    /**
+     * @see Worksheet#readDoubleColumn(String)
+     */
+    public CompletableFuture<double[]> readDoubleColumn(String range) {
+        return submit(ws -> ws.readDoubleColumn(range));
+    }
+
+    /**
+     * @see Worksheet#readStringColumn(String)
+     */
+    public CompletableFuture<String[]> readStringColumn(String range) {
+        return submit(ws -> ws.readStringColumn(range));
+    }
+
+    /**
+     * @see Worksheet#setColumn(String, double[])
+     */
+    public CompletableFuture<Void> setColumn(String start, double[] values) {
+        return submit(ws -> {
+            ws.setColumn(start, values);
+            return null;
+        });
+    }
+
+    /**
+     * @see Worksheet#setColumn(String, String[])
+     */
+    public CompletableFuture<Void> setColumn(String start, String[] values) {
+        return submit(ws -> {
+            ws.setColumn(start, values);
+            return null;
+        });
+    }
+}
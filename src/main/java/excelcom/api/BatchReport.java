@@ -0,0 +1,115 @@
+package excelcom.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results and statistics of a {@link WorkbookBatch} run
+ */
+public class BatchReport<T> {
+
+    private final List<BatchResult<T>> results;
+    private final long elapsedNanos;
+    // sorted latencies of all files
+    private final long[] latencies;
+    private final int failed;
+    private final int retries;
+
+    BatchReport(List<BatchResult<T>> results, long elapsedNanos) {
+        this.results = Collections.unmodifiableList(results);
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = new long[results.size()];
+        int failed = 0, retries = 0;
+        for (int i = 0; i < latencies.length; i++) {
+            BatchResult<T> result = results.get(i);
+            latencies[i] = result.getLatencyNanos();
+            failed += result.isSuccess() ? 0 : 1;
+            retries += result.getAttempts() - 1;
+        }
+        Arrays.sort(latencies);
+        this.failed = failed;
+        this.retries = retries;
+    }
+
+    /**
+     * @return results in the order of the file set
+     */
+    public List<BatchResult<T>> getResults() {
+        return results;
+    }
+
+    /**
+     * @return number of processed files
+     */
+    public int getFileCount() {
+        return results.size();
+    }
+
+    /**
+     * @return number of files whose job failed or timed out
+     */
+    public int getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * @return number of attempts which were repeated because an excel instance failed
+     */
+    public int getRetryCount() {
+        return retries;
+    }
+
+    /**
+     * @return wall clock time of the whole run
+     */
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return processed files per second
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : results.size() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Gets a percentile of the per file latency
+     * @param percentile percentile between 0 and 100, e.g. 50 for the median
+     * @return latency, 0 if no file was processed
+     */
+    public long getLatencyPercentile(double percentile, TimeUnit unit) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, but was " + percentile);
+        }
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+        return unit.convert(latencies[Math.max(index, 0)], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return mean latency per file, 0 if no file was processed
+     */
+    public long getMeanLatency(TimeUnit unit) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (long latency : latencies) {
+            sum += latency;
+        }
+        return unit.convert(sum / latencies.length, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files (%d failed, %d retries) in %d ms, %.1f files/s, latency p50 %d ms, p95 %d ms, max %d ms",
+                getFileCount(), failed, retries, getElapsed(TimeUnit.MILLISECONDS), getThroughput(),
+                getLatencyPercentile(50, TimeUnit.MILLISECONDS), getLatencyPercentile(95, TimeUnit.MILLISECONDS),
+                getLatencyPercentile(100, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,85 @@
+package excelcom.api;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of processing one workbook in a {@link WorkbookBatch}
+ */
+public class BatchResult<T> {
+
+    private final File file;
+    private final int index;
+    private final T value;
+    private final Throwable error;
+    private final int attempts;
+    private final long latencyNanos;
+
+    BatchResult(File file, int index, T value, Throwable error, int attempts, long latencyNanos) {
+        this.file = file;
+        this.index = index;
+        this.value = value;
+        this.error = error;
+        this.attempts = attempts;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * @return processed workbook
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return position of the file in the processed file set, 0-based
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return true if the job returned a value
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return value returned by the job, null if it failed
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return exception of the last attempt, a {@link java.util.concurrent.TimeoutException} if it timed out,
+     * null if the job succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return number of attempts, more than 1 if excel instances failed
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return time from the first attempt until the result was available, including retries
+     */
+    public long getLatency(TimeUnit unit) {
+        return unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return file + (isSuccess() ? ": " + value : " failed: " + error);
+    }
+}
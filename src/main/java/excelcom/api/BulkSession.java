@@ -0,0 +1,129 @@
+package excelcom.api;
+
+import com.sun.jna.platform.win32.COM.COMException;
+import excelcom.dispatch.Dispatch;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Suspends screen updating, events and automatic calculation of an excel instance while many cells are written.
+ * The previous values are restored on {@link #close()}, so sessions should be used with try-with-resources:
+ *
+ * <pre>
+ * try (BulkSession session = connection.bulkSession()) {
+ *     worksheet.setContent("A1:Z10000", content);
+ * }
+ * </pre>
+ *
+ * Sessions can be nested. A nested session only changes properties which are not suspended already,
+ * sessions must be closed in reverse order of their creation.
+ */
+public class BulkSession implements AutoCloseable {
+    private final ExcelConnection connection;
+    private final Dispatch application;
+    // previous values of the properties changed by this session
+    private final Map<String, Object> saved = new LinkedHashMap<>();
+    private boolean closed;
+
+    /**
+     * Saves and changes the properties
+     * @param connection connection which tracks the open sessions
+     * @param application excel Application object
+     * @param disableInteractive if true, user input is blocked as well
+     * @throws ExcelException if a property can't be changed, properties changed already are restored
+     */
+    BulkSession(ExcelConnection connection, Dispatch application, boolean disableInteractive) throws ExcelException {
+        this.connection = connection;
+        this.application = application;
+        try {
+            suspend("ScreenUpdating", false);
+            suspend("EnableEvents", false);
+            suspend("Calculation", VbaConstant.XL_CALCULATION_MANUAL.getIndex());
+            suspend("StatusBar", null);
+            if (disableInteractive) {
+                suspend("Interactive", false);
+            }
+        } catch (COMException e) {
+            restore();
+            throw new ExcelException(e, "Failed to start bulk session");
+        }
+    }
+
+    /**
+     * Saves the value of a property and sets it, unless an outer session has changed it already
+     * @param value value during the session, null to save the value only
+     */
+    private void suspend(String property, Object value) {
+        if (connection.isSuspended(property)) {
+            return;
+        }
+        saved.put(property, application.get(property));
+        if (value != null) {
+            application.put(property, value);
+        }
+    }
+
+    /**
+     * @return names of the properties saved by this session
+     */
+    Iterable<String> getSavedProperties() {
+        return saved.keySet();
+    }
+
+    /**
+     * Shows a text in the status bar, e.g. the progress. The previous text is restored when the session is closed.
+     * @param text text to be shown
+     */
+    public void setStatusBar(String text) throws ExcelException {
+        try {
+            application.put("StatusBar", text);
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to set Property 'StatusBar' to " + text);
+        }
+    }
+
+    /**
+     * Restores the properties changed by this session. Calculation is restored last, so excel recalculates
+     * with screen updating and events in their previous state.
+     * @throws ExcelException if a property can't be restored, the other properties are restored anyway
+     * @throws IllegalStateException if a nested session is still open
+     */
+    public void close() throws ExcelException, IllegalStateException {
+        if (closed) {
+            return;
+        }
+        connection.endBulkSession(this);
+        closed = true;
+        COMException failure = restore();
+        if (failure != null) {
+            throw new ExcelException(failure, "Failed to restore application properties");
+        }
+    }
+
+    /**
+     * @return first exception or null if all properties were restored
+     */
+    private COMException restore() {
+        COMException failure = null;
+        Object calculation = saved.get("Calculation");
+        for (Map.Entry<String, Object> entry : saved.entrySet()) {
+            if (!entry.getKey().equals("Calculation")) {
+                failure = put(entry.getKey(), entry.getValue(), failure);
+            }
+        }
+        if (calculation != null) {
+            failure = put("Calculation", calculation, failure);
+        }
+        return failure;
+    }
+
+    private COMException put(String property, Object value, COMException failure) {
+        try {
+            application.put(property, value);
+        } catch (COMException e) {
+            return failure == null ? e : failure;
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,99 @@
+package excelcom.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges single cells into as few rectangles as possible, so they can be written or formatted with few calls.
+ * Cells are identified by a key with the row in the upper and the column in the lower 32 bits,
+ * so sorting the keys sorts the cells row by row.
+ */
+final class CellRectangles {
+
+    private CellRectangles() {
+    }
+
+    static long key(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+
+    static int row(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int column(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Merges cells into rectangles. Cells in a row are merged into runs and runs covering the same columns in
+     * consecutive rows are merged into one rectangle.
+     * @param keys keys of the cells in ascending order
+     * @return rectangles which cover every cell exactly once
+     */
+    static List<RangeRef> merge(Iterable<Long> keys) {
+        List<RangeRef> rectangles = new ArrayList<>();
+        // rectangles which end in the previous row, by first column in the upper and last column in the lower 32 bits
+        Map<Long, int[]> open = new HashMap<>();
+        Map<Long, int[]> extended = new HashMap<>();
+        int currentRow = -1;
+        int runStart = -1, runEnd = -1;
+
+        for (long key : keys) {
+            int row = row(key), column = column(key);
+            if (row == currentRow && column == runEnd + 1) {
+                runEnd = column;
+                continue;
+            }
+            if (currentRow != -1) {
+                addRun(currentRow, runStart, runEnd, open, extended);
+            }
+            if (row != currentRow) {
+                closeRectangles(row, currentRow, open, extended, rectangles);
+                currentRow = row;
+            }
+            runStart = runEnd = column;
+        }
+        if (currentRow != -1) {
+            addRun(currentRow, runStart, runEnd, open, extended);
+            closeRectangles(-1, currentRow, open, extended, rectangles);
+        }
+        return rectangles;
+    }
+
+    /**
+     * Extends the rectangle of the previous row covering the same columns or starts a new one.
+     * A rectangle is stored as [firstRow, firstColumn, lastRow, lastColumn].
+     */
+    private static void addRun(int row, int first, int last, Map<Long, int[]> open, Map<Long, int[]> extended) {
+        long columns = key(first, last);
+        int[] rectangle = open.remove(columns);
+        if (rectangle == null) {
+            rectangle = new int[]{row, first, row, last};
+        } else {
+            rectangle[2] = row;
+        }
+        extended.put(columns, rectangle);
+    }
+
+    /**
+     * Called when a new row starts. Rectangles which were not extended by the previous row are finished,
+     * the extended ones may be extended by the new row if it directly follows.
+     */
+    private static void closeRectangles(int newRow, int previousRow, Map<Long, int[]> open, Map<Long, int[]> extended, List<RangeRef> rectangles) {
+        for (int[] rectangle : open.values()) {
+            rectangles.add(RangeRef.of(rectangle[0], rectangle[1], rectangle[2], rectangle[3]));
+        }
+        open.clear();
+        if (newRow == previousRow + 1) {
+            open.putAll(extended);
+        } else {
+            for (int[] rectangle : extended.values()) {
+                rectangles.add(RangeRef.of(rectangle[0], rectangle[1], rectangle[2], rectangle[3]));
+            }
+        }
+        extended.clear();
+    }
+}
@@ -0,0 +1,128 @@
+package excelcom.api;
+
+import excelcom.util.AddressParser;
+
+/**
+ * Immutable reference to one cell. Can be passed to the methods of Worksheet instead of an address string,
+ * the address is rendered once and cached.
+ */
+public final class CellRef {
+    private final int row;
+    private final int column;
+    private String address = null;
+
+    private CellRef(int row, int column) {
+        this.row = row;
+        this.column = column;
+    }
+
+    /**
+     * Creates a reference to a cell
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return reference to the cell
+     * @throws IllegalArgumentException if row or column is out of range
+     */
+    public static CellRef of(int row, int column) throws IllegalArgumentException {
+        checkRow(row);
+        checkColumn(column);
+        return new CellRef(row, column);
+    }
+
+    /**
+     * Creates a reference from an address like "B5"
+     * @param address address of one cell
+     * @return reference to the cell
+     * @throws IllegalArgumentException if address is invalid or not a single cell
+     */
+    public static CellRef parse(String address) throws IllegalArgumentException {
+        int[] bounds = new int[4];
+        AddressParser.parse(address, bounds);
+        if (bounds[0] != bounds[2] || bounds[1] != bounds[3]) {
+            throw new IllegalArgumentException("Multiple cell range was given: " + address);
+        }
+        return new CellRef(bounds[0], bounds[1]);
+    }
+
+    /**
+     * @return row index, 0-based
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * @return column index, 0-based
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return range consisting of this cell only
+     */
+    public RangeRef toRangeRef() {
+        return RangeRef.of(row, column, row, column);
+    }
+
+    /**
+     * @return address in A1 notation, e.g. "B5"
+     */
+    public String getAddress() {
+        String a = address;
+        if (a == null) {
+            StringBuilder builder = new StringBuilder(10);
+            appendAddress(builder, row, column);
+            address = a = builder.toString();
+        }
+        return a;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CellRef that = (CellRef) o;
+        return row == that.row && column == that.column;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * row + column;
+    }
+
+    @Override
+    public String toString() {
+        return getAddress();
+    }
+
+    /**
+     * Appends the A1 address of a cell without creating temporary strings
+     * @param builder builder to append to
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     */
+    static void appendAddress(StringBuilder builder, int row, int column) {
+        int start = builder.length();
+        int dividend = column + 1;
+        while (dividend > 0) {
+            int modulo = (dividend - 1) % 26;
+            builder.insert(start, (char) ('A' + modulo));
+            dividend = (dividend - modulo) / 26;
+        }
+        builder.append(row + 1);
+    }
+
+    static void checkRow(int row) {
+        if (row < 0 || row >= AddressParser.MAX_ROWS) {
+            throw new IllegalArgumentException("row index is out of range (0 to " + (AddressParser.MAX_ROWS - 1) + "): " + row);
+        }
+    }
+
+    static void checkColumn(int column) {
+        if (column < 0 || column >= AddressParser.MAX_COLUMNS) {
+            throw new IllegalArgumentException("column index is out of range (0 to " + (AddressParser.MAX_COLUMNS - 1) + "): " + column);
+        }
+    }
+}
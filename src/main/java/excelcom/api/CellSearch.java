@@ -0,0 +1,97 @@
+package excelcom.api;
+
+import com.sun.jna.platform.win32.WinDef;
+import excelcom.dispatch.CellMatrix;
+import excelcom.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates the options of Find on content which was read in one block, see {@link Worksheet#findAll(FindOptions)}
+ */
+final class CellSearch {
+
+    private CellSearch() {
+    }
+
+    /**
+     * Searches the content in the order FindNext would visit the cells: starting after the After cell,
+     * wrapping around at the end of the range and ending with the After cell itself.
+     * @param content values or formulas of range
+     * @param range searched range
+     * @param after cell after which the search starts
+     * @param options search options
+     * @return matching cells
+     */
+    static List<CellRef> findAll(CellMatrix content, RangeRef range, CellRef after, FindOptions options) {
+        int rowCount = range.getRowCount(), columnCount = range.getColumnCount();
+        boolean byColumns = options.getSearchOrder() == VbaConstant.XL_BY_COLUMNS;
+        boolean previous = options.getSearchDirection() == VbaConstant.XL_PREVIOUS;
+        boolean whole = options.getLookAt() == VbaConstant.XL_WHOLE;
+        boolean matchCase = Boolean.TRUE.equals(options.getMatchCase());
+        String pattern = options.getValue();
+
+        long total = (long) rowCount * columnCount;
+        long start = previous ? 0 : -1;
+        if (range.contains(after.getRow(), after.getColumn())) {
+            int row = after.getRow() - range.getFirstRow(), column = after.getColumn() - range.getFirstColumn();
+            start = byColumns ? (long) column * rowCount + row : (long) row * columnCount + column;
+        }
+
+        List<CellRef> matches = new ArrayList<>();
+        for (long k = 1; k <= total; k++) {
+            long index = ((start + (previous ? -k : k)) % total + total) % total;
+            int row = (int) (byColumns ? index % rowCount : index / columnCount);
+            int column = (int) (byColumns ? index / rowCount : index % columnCount);
+            String text = toText(content, row, column);
+            if (text != null && Util.matchesWildcard(pattern, text, matchCase, whole)) {
+                matches.add(CellRef.of(range.getFirstRow() + row, range.getFirstColumn() + column));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Text of a cell as it's searched
+     * @return text or null if the cell is empty
+     */
+    private static String toText(CellMatrix content, int row, int column) {
+        switch (content.getType(row, column)) {
+            case EMPTY:
+                return null;
+            case STRING:
+                String text = content.getString(row, column);
+                // Formula of empty cells
+                return text.isEmpty() ? null : text;
+            case NUMBER:
+                return Util.numberToText(content.getDouble(row, column));
+            case BOOLEAN:
+                return ((Boolean) content.get(row, column)) ? "TRUE" : "FALSE";
+            case ERROR:
+                return errorText(((WinDef.SCODE) content.get(row, column)).intValue() & 0xFFFF);
+            case DATE:
+                // excel matches the formatted text, which depends on the number format and locale
+                return null;
+            default:
+                return String.valueOf(content.get(row, column));
+        }
+    }
+
+    /**
+     * @param code CVErr code, e.g. 2042
+     * @return text of the error as shown in a cell
+     */
+    private static String errorText(int code) {
+        switch (code) {
+            case 2000: return "#NULL!";
+            case 2007: return "#DIV/0!";
+            case 2015: return "#VALUE!";
+            case 2023: return "#REF!";
+            case 2029: return "#NAME?";
+            case 2036: return "#NUM!";
+            case 2042: return "#N/A";
+            default: return "#ERROR " + code;
+        }
+    }
+}
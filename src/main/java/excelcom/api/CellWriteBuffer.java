@@ -0,0 +1,137 @@
+package excelcom.api;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static excelcom.api.CellRectangles.column;
+import static excelcom.api.CellRectangles.key;
+
+/**
+ * Collects writes of single cells and writes them on {@link #flush()} with as few calls as possible.
+ * Adjacent cells are merged into rectangles and each rectangle is written with one setContent, instead of
+ * two calls (Range and Value) per cell. Reads through this buffer see the pending values.
+ * The buffer MUST be closed or flushed, otherwise the pending values are lost.
+ *
+ * <pre>
+ * try (CellWriteBuffer buffer = worksheet.bufferWrites()) {
+ *     for (int row = 0; row &lt; 100; row++) {
+ *         buffer.setUnaryContent(row, 0, row);
+ *     }
+ * }
+ * </pre>
+ */
+public class CellWriteBuffer implements Closeable {
+
+    private final Worksheet worksheet;
+    // pending values by key of the cell, sorted row by row
+    private final TreeMap<Long, Object> pending = new TreeMap<>();
+
+    CellWriteBuffer(Worksheet worksheet) {
+        this.worksheet = worksheet;
+    }
+
+    /**
+     * @return number of cells which are not written yet
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Sets content of one cell when the buffer is flushed
+     * @param cell reference to the cell
+     * @param content value to be set, see {@link Worksheet#setUnaryContent(String, Object)}
+     */
+    public void setUnaryContent(CellRef cell, Object content) {
+        pending.put(key(cell.getRow(), cell.getColumn()), content);
+    }
+
+    /**
+     * @see #setUnaryContent(CellRef, Object)
+     * @param row index of row, 0-based
+     * @param column index of column, 0-based
+     */
+    public void setUnaryContent(int row, int column, Object content) throws IllegalArgumentException {
+        this.setUnaryContent(CellRef.of(row, column), content);
+    }
+
+    /**
+     * @see #setUnaryContent(CellRef, Object)
+     * @param range one cell range, e.g. "A5"
+     * @throws IllegalArgumentException if multiple cell range was given
+     */
+    public void setUnaryContent(String range, Object content) throws IllegalArgumentException {
+        this.setUnaryContent(CellRef.parse(range), content);
+    }
+
+    /**
+     * Gets content from one cell, the pending value if it's not written yet
+     * @param cell reference to the cell
+     * @return cell value
+     */
+    public Object getUnaryContent(CellRef cell) throws ExcelException {
+        long key = key(cell.getRow(), cell.getColumn());
+        if (pending.containsKey(key)) {
+            return pending.get(key);
+        }
+        return worksheet.getUnaryContent(cell);
+    }
+
+    /**
+     * @see #getUnaryContent(CellRef)
+     * @param row index of row, 0-based
+     * @param column index of column, 0-based
+     */
+    public Object getUnaryContent(int row, int column) throws ExcelException, IllegalArgumentException {
+        return this.getUnaryContent(CellRef.of(row, column));
+    }
+
+    /**
+     * Gets the content in range with pending values applied
+     * @param range reference to the range
+     * @return 2-dimensional array of content
+     */
+    public Object[][] getContent(RangeRef range) throws ExcelException {
+        Object[][] content = worksheet.getContent(range);
+        for (int row = range.getFirstRow(); row <= range.getLastRow() && !pending.isEmpty(); row++) {
+            Map<Long, Object> pendingInRow = pending.subMap(key(row, range.getFirstColumn()), true, key(row, range.getLastColumn()), true);
+            for (Map.Entry<Long, Object> entry : pendingInRow.entrySet()) {
+                content[row - range.getFirstRow()][column(entry.getKey()) - range.getFirstColumn()] = entry.getValue();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Writes all pending values. Cells in a row are merged into runs and runs covering the same columns in
+     * consecutive rows are merged into one rectangle, which is written with one call.
+     * @throws ExcelException if writing fails, values of rectangles which were not written stay pending
+     */
+    public void flush() throws ExcelException {
+        for (RangeRef rectangle : CellRectangles.merge(pending.keySet())) {
+            if (rectangle.isSingleCell()) {
+                worksheet.setUnaryContent(rectangle.getFirstCell(), pending.get(key(rectangle.getFirstRow(), rectangle.getFirstColumn())));
+            } else {
+                Object[][] content = new Object[rectangle.getRowCount()][rectangle.getColumnCount()];
+                for (int row = 0; row < content.length; row++) {
+                    for (int column = 0; column < content[row].length; column++) {
+                        content[row][column] = pending.get(key(rectangle.getFirstRow() + row, rectangle.getFirstColumn() + column));
+                    }
+                }
+                worksheet.setContent(rectangle, content);
+            }
+            for (int row = rectangle.getFirstRow(); row <= rectangle.getLastRow(); row++) {
+                pending.subMap(key(row, rectangle.getFirstColumn()), true, key(row, rectangle.getLastColumn()), true).clear();
+            }
+        }
+    }
+
+    /**
+     * Writes all pending values
+     * @throws ExcelException if writing fails
+     */
+    public void close() throws ExcelException {
+        flush();
+    }
+}
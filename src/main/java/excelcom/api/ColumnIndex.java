@@ -0,0 +1,215 @@
+package excelcom.api;
+
+import excelcom.dispatch.CellMatrix;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps the values of a key column to the rows they are in, for lookups without calling excel.
+ * The column is read once. Writes through the {@link Worksheet} the index was built from invalidate the written rows,
+ * which are read again on the next lookup.
+ *
+ * Numbers are compared by their value, so 5 and 5.0 are the same key. Empty cells are not indexed.
+ */
+public class ColumnIndex implements WriteListener {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final Worksheet worksheet;
+    private final RangeRef column;
+    private final boolean ignoreCase;
+
+    // key of each row of the column, null for empty cells
+    private Object[] keys;
+    // rows by key, Integer for a unique key and a sorted int[] for duplicates to keep the index small
+    private final Map<Object, Object> rows = new HashMap<>();
+    private final InvalidRanges invalidRanges = new InvalidRanges();
+
+    /**
+     * @param worksheet worksheet with the key column
+     * @param column one column range
+     * @param ignoreCase if true, strings are compared case-insensitively
+     */
+    ColumnIndex(Worksheet worksheet, RangeRef column, boolean ignoreCase) throws ExcelException {
+        this.worksheet = worksheet;
+        this.column = column;
+        this.ignoreCase = ignoreCase;
+        load();
+    }
+
+    private void load() throws ExcelException {
+        keys = new Object[column.getRowCount()];
+        rows.clear();
+        read(column);
+        invalidRanges.clear();
+    }
+
+    /**
+     * Reads a part of the column and updates the keys of its rows
+     */
+    private void read(RangeRef range) throws ExcelException {
+        CellMatrix matrix = worksheet.getCellMatrix(range);
+        try {
+            for (int i = 0; i < matrix.getRowCount(); i++) {
+                int index = range.getFirstRow() + i - column.getFirstRow();
+                if (keys[index] != null) {
+                    remove(keys[index], index);
+                }
+                keys[index] = key(matrix.get(i, 0));
+                if (keys[index] != null) {
+                    add(keys[index], index);
+                }
+            }
+        } finally {
+            matrix.close();
+        }
+    }
+
+    private Object key(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof String) {
+            String s = (String) value;
+            if (s.isEmpty()) {
+                return null;
+            }
+            return ignoreCase ? s.toLowerCase(Locale.ROOT) : s;
+        }
+        return value;
+    }
+
+    private void add(Object key, int index) {
+        Object current = rows.get(key);
+        if (current == null) {
+            rows.put(key, index);
+        } else if (current instanceof Integer) {
+            int other = (Integer) current;
+            rows.put(key, other < index ? new int[]{other, index} : new int[]{index, other});
+        } else {
+            int[] indices = (int[]) current;
+            int position = -Arrays.binarySearch(indices, index) - 1;
+            int[] grown = new int[indices.length + 1];
+            System.arraycopy(indices, 0, grown, 0, position);
+            grown[position] = index;
+            System.arraycopy(indices, position, grown, position + 1, indices.length - position);
+            rows.put(key, grown);
+        }
+    }
+
+    private void remove(Object key, int index) {
+        Object current = rows.get(key);
+        if (current instanceof Integer) {
+            rows.remove(key);
+        } else if (current != null) {
+            int[] indices = (int[]) current;
+            int position = Arrays.binarySearch(indices, index);
+            if (indices.length == 2) {
+                rows.put(key, indices[1 - position]);
+            } else {
+                int[] shrunk = new int[indices.length - 1];
+                System.arraycopy(indices, 0, shrunk, 0, position);
+                System.arraycopy(indices, position + 1, shrunk, position, shrunk.length - position);
+                rows.put(key, shrunk);
+            }
+        }
+    }
+
+    /**
+     * Marks cells as invalid, they are read again on the next lookup. Called by the worksheet for writes through it,
+     * can be called for cells which were changed otherwise.
+     * @param range changed range or null if it's unknown
+     */
+    public void invalidate(RangeRef range) {
+        if (range == null) {
+            invalidRanges.add(null);
+        } else if (!invalidRanges.isAll()) {
+            RangeRef overlap = column.intersect(range);
+            if (overlap != null) {
+                invalidRanges.add(overlap);
+            }
+        }
+    }
+
+    private void validate() throws ExcelException {
+        if (invalidRanges.isAll()) {
+            load();
+            return;
+        }
+        // a range is only valid once it was read, a failed read is repeated on the next lookup
+        for (RangeRef range = invalidRanges.peek(); range != null; range = invalidRanges.peek()) {
+            read(range);
+            invalidRanges.remove(range);
+        }
+    }
+
+    /**
+     * Reads the whole column again
+     * @throws ExcelException if reading fails
+     */
+    public void refresh() throws ExcelException {
+        load();
+    }
+
+    /**
+     * @return indexed column
+     */
+    public RangeRef getColumn() {
+        return column;
+    }
+
+    /**
+     * Gets all rows with a key
+     * @param key key to look up, e.g. a String or a Number
+     * @return row indices of the worksheet in ascending order, 0-based. Empty if the key is not in the column.
+     * @throws ExcelException if invalid rows can't be read again
+     */
+    public int[] getRows(Object key) throws ExcelException {
+        validate();
+        Object current = rows.get(key(key));
+        if (current == null) {
+            return NO_ROWS;
+        } else if (current instanceof Integer) {
+            return new int[]{column.getFirstRow() + (Integer) current};
+        }
+        int[] indices = ((int[]) current).clone();
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] += column.getFirstRow();
+        }
+        return indices;
+    }
+
+    /**
+     * Gets the first row with a key
+     * @param key key to look up
+     * @return row index of the worksheet, 0-based, or -1 if the key is not in the column
+     * @throws ExcelException if invalid rows can't be read again
+     */
+    public int getRow(Object key) throws ExcelException {
+        validate();
+        Object current = rows.get(key(key));
+        if (current == null) {
+            return -1;
+        }
+        return column.getFirstRow() + (current instanceof Integer ? (Integer) current : ((int[]) current)[0]);
+    }
+
+    /**
+     * @param key key to look up
+     * @return true if the key is in the column
+     * @throws ExcelException if invalid rows can't be read again
+     */
+    public boolean containsKey(Object key) throws ExcelException {
+        return getRow(key) != -1;
+    }
+
+    /**
+     * @return number of distinct keys
+     * @throws ExcelException if invalid rows can't be read again
+     */
+    public int size() throws ExcelException {
+        validate();
+        return rows.size();
+    }
+}
@@ -2,18 +2,42 @@ package excelcom.api;
 
 import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.COM.COMException;
-import com.sun.jna.platform.win32.COM.COMLateBindingObject;
 import com.sun.jna.platform.win32.Ole32;
-import com.sun.jna.platform.win32.Variant;
+import excelcom.dispatch.CallMetrics;
+import excelcom.dispatch.CallTracer;
+import excelcom.dispatch.ComDispatch;
+import excelcom.dispatch.ComScope;
+import excelcom.dispatch.ComThread;
+import excelcom.dispatch.Dispatch;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a connection to an excel instance
  */
-public class ExcelConnection extends COMLateBindingObject {
+public class ExcelConnection {
+    private static final AtomicInteger CONNECTION_COUNTER = new AtomicInteger();
 
-    private boolean activeInstanceUsed;
+    private final Dispatch application;
+    private final boolean activeInstanceUsed;
+    private final boolean comInitialized;
+    // thread which initialized COM, only it may uninitialize COM
+    private final Thread comInitializedThread;
+    // thread all calls are executed on, null if they are executed on the calling thread
+    private final ComThread comThread;
+    private final CallMetrics metrics = new CallMetrics(Boolean.getBoolean("excelcom.metrics"));
+    // name of the registered metrics MBean, null if it's not registered
+    private ObjectName metricsName = null;
+    // open bulk sessions, the innermost first
+    private final Deque<BulkSession> bulkSessions = new ArrayDeque<>();
+    // workbooks by name, invalidated on close and quit
+    private final HandleRegistry handles = new HandleRegistry();
 
     /**
      * Connects to a new excel instance
@@ -34,12 +58,64 @@ public class ExcelConnection extends COMLateBindingObject {
     public static ExcelConnection connect(boolean useActiveInstance) throws ExcelException {
         try {
             Ole32.INSTANCE.CoInitializeEx(Pointer.NULL, Ole32.COINIT_MULTITHREADED);
-            return new ExcelConnection(useActiveInstance);
+            return new ExcelConnection(new ComDispatch("Excel.Application", useActiveInstance), useActiveInstance, true, null);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to connect to " + (useActiveInstance ? "an active " : "a new ") + "Excel instance");
         }
     }
 
+    /**
+     * Connects to an excel application provided by another dispatch backend, e.g. a
+     * {@link excelcom.dispatch.SimulatedExcel}. COM is neither initialized nor uninitialized by this connection.
+     * @param application excel Application object
+     * @return excel connection
+     */
+    public static ExcelConnection connect(Dispatch application) {
+        return new ExcelConnection(application, false, false, null);
+    }
+
+    /**
+     * Connects to a new excel instance on a dedicated COM thread.
+     * @see #connectOnComThread(boolean)
+     */
+    public static ExcelConnection connectOnComThread() throws ExcelException {
+        return connectOnComThread(false);
+    }
+
+    /**
+     * Connects to an excel instance on a dedicated COM thread which initializes and uninitializes COM. Every call of
+     * this connection and of the workbooks, worksheets and ranges it returns is executed on that thread, so they can
+     * be shared by multiple threads which don't need to initialize COM. The user MUST call ExcelConnection#quit
+     * when finished to stop the thread.
+     * @param useActiveInstance if true, an existing instance will be used
+     * @return excel connection
+     * @throws ExcelException when connecting fails
+     */
+    public static ExcelConnection connectOnComThread(boolean useActiveInstance) throws ExcelException {
+        ComThread thread = null;
+        try {
+            thread = new ComThread("excelcom-com", true);
+            Dispatch application = thread.call(() -> new ComDispatch("Excel.Application", useActiveInstance));
+            return new ExcelConnection(application, useActiveInstance, false, thread);
+        } catch (COMException e) {
+            if (thread != null) {
+                thread.shutdown();
+            }
+            throw new ExcelException(e, "Failed to connect to " + (useActiveInstance ? "an active " : "a new ") + "Excel instance");
+        }
+    }
+
+    /**
+     * Connects to an excel application provided by another dispatch backend and executes all calls on the given thread.
+     * The thread is shut down on quit.
+     * @param application excel Application object
+     * @param comThread thread all calls are executed on
+     * @return excel connection
+     */
+    public static ExcelConnection connect(Dispatch application, ComThread comThread) {
+        return new ExcelConnection(application, false, false, comThread);
+    }
+
     /**
      * Initializes COM manually, NOT RECOMMMENDED! ExcelConnection::connect should initialize and uninitialize COM automatically.
      * However if this method is called, uninitializeCom must be called anywhen later!
@@ -59,11 +135,21 @@ public class ExcelConnection extends COMLateBindingObject {
 
     /**
      * Connects to an excel instance
-     * @param useActiveInstance true if should connect to an active excel instance
+     * @param application excel Application object
+     * @param useActiveInstance true if connected to an active excel instance
+     * @param comInitialized true if COM has to be uninitialized on quit
+     * @param comThread thread all calls are executed on, null for the calling thread
      */
-    private ExcelConnection(boolean useActiveInstance) throws ExcelException {
-        super("Excel.Application", useActiveInstance);
+    private ExcelConnection(Dispatch application, boolean useActiveInstance, boolean comInitialized, ComThread comThread) {
+        // calls are measured on the COM thread, so the time waiting for it is not included,
+        // but traced on the calling thread, so they nest below the api call which made them
+        Dispatch metered = metrics.wrap(application);
+        Dispatch traced = CallTracer.getInstance().wrap(comThread == null ? metered : comThread.marshal(metered));
+        this.application = ComScope.track(traced);
         this.activeInstanceUsed = useActiveInstance;
+        this.comInitialized = comInitialized;
+        this.comInitializedThread = Thread.currentThread();
+        this.comThread = comThread;
     }
 
     /* ****************************
@@ -76,7 +162,7 @@ public class ExcelConnection extends COMLateBindingObject {
      */
     public void setVisible(boolean bVisible) throws ExcelException {
         try {
-            this.setProperty("Visible", bVisible);
+            this.application.put("Visible", bVisible);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set Property 'Visible' to " + bVisible);
         }
@@ -89,12 +175,56 @@ public class ExcelConnection extends COMLateBindingObject {
      */
     public void setDisplayAlerts(boolean displayAlerts) throws ExcelException {
         try {
-            this.setProperty("DisplayAlerts", displayAlerts);
+            this.application.put("DisplayAlerts", displayAlerts);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set Property 'DisplayAlerts' to " + displayAlerts);
         }
     }
 
+    /**
+     * Starts a bulk session which suspends ScreenUpdating, EnableEvents and automatic Calculation until it's closed.
+     * @return session which restores the previous state when it's closed
+     * @throws ExcelException if the properties can't be changed
+     */
+    public BulkSession bulkSession() throws ExcelException {
+        return this.bulkSession(false);
+    }
+
+    /**
+     * @see #bulkSession()
+     * @param disableInteractive if true, user input (Interactive) is blocked as well
+     */
+    public BulkSession bulkSession(boolean disableInteractive) throws ExcelException {
+        BulkSession session = new BulkSession(this, this.application, disableInteractive);
+        bulkSessions.push(session);
+        return session;
+    }
+
+    /**
+     * @return true if an open bulk session has changed the property
+     */
+    boolean isSuspended(String property) {
+        for (BulkSession session : bulkSessions) {
+            for (String saved : session.getSavedProperties()) {
+                if (saved.equals(property)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called when a bulk session is closed
+     * @throws IllegalStateException if it's not the innermost open session
+     */
+    void endBulkSession(BulkSession session) throws IllegalStateException {
+        if (bulkSessions.peek() != session) {
+            throw new IllegalStateException("Nested bulk sessions must be closed first");
+        }
+        bulkSessions.pop();
+    }
+
     /**
      * Gets the version of excel
      * @return version of excel instance used
@@ -102,25 +232,87 @@ public class ExcelConnection extends COMLateBindingObject {
      */
     public String getVersion() throws ExcelException {
         try {
-            return this.getStringProperty("Version");
+            return (String) this.application.get("Version");
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get Property 'Version'");
         }
     }
 
     /**
-     * Quits the excel instance and uninitializes the com interface
+     * Quits the excel instance and uninitializes the com interface if it was initialized on the calling thread
      * @throws ExcelException if quitting or uninitializing com fails
      */
     public void quit() throws ExcelException {
         try {
+            handles.clear();
             if(!activeInstanceUsed) {
-                this.invokeNoReply("Quit");
+                this.application.call("Quit");
+            }
+            // COM is left initialized if quit is called on another thread, uninitializing it there could tear down
+            // the COM setup of that thread
+            if(comInitialized && Thread.currentThread() == comInitializedThread) {
+                Ole32.INSTANCE.CoUninitialize();
             }
-            Ole32.INSTANCE.CoUninitialize();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to invoke 'Quit' or to uninitialize COM");
+        } finally {
+            unregisterMetrics();
+            if (comThread != null) {
+                comThread.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Gets the metrics of the calls made by this connection and all objects it returned. They are disabled unless
+     * the system property excelcom.metrics is true, see {@link CallMetrics#setEnabled(boolean)}.
+     * @return metrics of this connection
+     */
+    public CallMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Publishes the metrics as MBean in the platform MBean server until the connection is quit
+     * @return name of the MBean, e.g. "excelcom:type=CallMetrics,name=connection-1"
+     * @throws IllegalStateException if the MBean can't be registered
+     */
+    public synchronized ObjectName registerMetrics() throws IllegalStateException {
+        if (metricsName == null) {
+            try {
+                ObjectName name = new ObjectName("excelcom:type=CallMetrics,name=connection-" + CONNECTION_COUNTER.incrementAndGet());
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+                metricsName = name;
+            } catch (JMException e) {
+                throw new IllegalStateException("Failed to register metrics MBean", e);
+            }
         }
+        return metricsName;
+    }
+
+    private synchronized void unregisterMetrics() {
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                // unregistered already
+            }
+            metricsName = null;
+        }
+    }
+
+    /**
+     * Creates an asynchronous facade of a worksheet of this connection. Only available for connections
+     * on a dedicated COM thread, see {@link #connectOnComThread()}.
+     * @param worksheet worksheet of this connection
+     * @return worksheet whose calls are queued on the COM thread
+     * @throws IllegalStateException if this connection has no COM thread
+     */
+    public AsyncWorksheet async(Worksheet worksheet) throws IllegalStateException {
+        if (comThread == null) {
+            throw new IllegalStateException("Connection has no dedicated COM thread, use ExcelConnection.connectOnComThread");
+        }
+        return new AsyncWorksheet(worksheet, comThread);
     }
 
     /* **************************
@@ -133,7 +325,7 @@ public class ExcelConnection extends COMLateBindingObject {
      */
     public Workbooks getWorkbooks() throws ExcelException {
         try {
-            return new Workbooks(this.getAutomationProperty("WorkBooks"));
+            return new Workbooks((Dispatch) this.application.get("WorkBooks"), handles);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get Property 'Workbooks'");
         }
@@ -145,21 +337,42 @@ public class ExcelConnection extends COMLateBindingObject {
      */
     public Workbook getActiveWorkbook() throws ExcelException {
         try {
-            return new Workbook(this.getAutomationProperty("ActiveWorkbook"));
+            Workbook wb = new Workbook((Dispatch) this.application.get("ActiveWorkbook"), handles);
+            return handles.put(wb, wb.getName());
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get Property 'ActiveWorkbook'");
         }
     }
 
+    /**
+     * Gets an open workbook by name. Workbooks are cached by name until they are closed, so its worksheets
+     * stay cached as well.
+     * @param name name of the workbook, e.g. "test.xlsx"
+     * @return workbook, the same instance for the same name
+     * @throws ExcelException if there is no such workbook
+     */
+    public Workbook getWorkbook(String name) throws ExcelException {
+        Workbook cached = handles.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        try (ComScope scope = ComScope.open()) {
+            return handles.put(this.getWorkbooks().getWorkbook(name), name);
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to get workbook named " + name);
+        }
+    }
+
     /**
      * Opens a workbook
      * @param file file to open
      * @return excelcom.api.Workbook instance
      */
     public Workbook openWorkbook(File file) throws ExcelException {
-        try {
-            this.invokeNoReply("Open", getWorkbooks(), new Variant.VARIANT(file.getAbsolutePath()));
-            return this.getActiveWorkbook(); //TODO application.recentfiles(1)
+        try (CallTracer.Span span = CallTracer.getInstance().span("ExcelConnection.openWorkbook", file.getName());
+             ComScope scope = ComScope.open()) {
+            Workbook wb = this.getWorkbooks().openWorkbook(file);
+            return handles.put(wb, wb.getName());
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to open Workbook located at " + file.getAbsolutePath());
         }
@@ -172,10 +385,10 @@ public class ExcelConnection extends COMLateBindingObject {
      * @throws ExcelException if creation fails
      */
     public Workbook newWorkbook(File file) throws ExcelException {
-        try {
+        try (ComScope scope = ComScope.open()) {
             Workbook wb = this.getWorkbooks().addWorkbook();
             wb.saveAs(file);
-            return wb;
+            return handles.put(wb, wb.getName());
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to create new workbook");
         }
@@ -0,0 +1,429 @@
+package excelcom.api;
+
+import com.sun.jna.platform.win32.COM.COMException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Pool of excel instances which are reused for many jobs instead of starting and quitting excel for each of them.
+ * Connections are leased for one job and returned by closing the lease:
+ *
+ * <pre>
+ * try (ExcelConnectionPool pool = new ExcelConnectionPool(1, 4)) {
+ *     try (ExcelConnectionPool.Lease lease = pool.lease()) {
+ *         Workbook workbook = lease.getConnection().openWorkbook(file);
+ *         ...
+ *         workbook.close(false);
+ *     }
+ * }
+ * </pre>
+ *
+ * Excel's memory usage grows with the number of opened workbooks, so instances can be recycled, i.e. quit and
+ * replaced, after a number of leases or after some time. Idle connections are checked with a cheap Version call
+ * before they are leased, instances which were closed by the user or crashed are replaced.
+ *
+ * At least minSize connections are kept, recycled and discarded connections are replaced when they are returned.
+ *
+ * Leases can be taken, returned and the pool closed from any thread, so connections are created, recycled and quit on
+ * different threads. By default they are created by {@link ExcelConnection#connectOnComThread()}, which initializes
+ * and uninitializes COM on its own thread. Connections created by {@link ExcelConnection#connect()} initialize COM on
+ * the leasing thread and leave it initialized if they are quit on another thread, other threads using them MUST have
+ * initialized COM, see {@link ExcelConnection#initializeCom()}.
+ */
+public class ExcelConnectionPool implements AutoCloseable {
+
+    private final Supplier<ExcelConnection> factory;
+    private final int minSize;
+    private final int maxSize;
+
+    private volatile long leaseTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+    private volatile int maxLeases = 0;
+    private volatile long maxAgeNanos = 0;
+    private volatile boolean validateOnLease = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // idle connections, the most recently used first
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    // idle, leased and currently starting connections
+    private int size = 0;
+    private long createdCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a pool of connections on COM threads and starts minSize connections
+     * @see #ExcelConnectionPool(Supplier, int, int)
+     */
+    public ExcelConnectionPool(int minSize, int maxSize) throws ExcelException, IllegalArgumentException {
+        this(ExcelConnection::connectOnComThread, minSize, maxSize);
+    }
+
+    /**
+     * Creates a pool and starts minSize connections
+     * @param factory creates a new connection, e.g. ExcelConnection::connectOnComThread
+     * @param minSize number of connections started immediately and kept when connections are recycled
+     * @param maxSize maximum number of connections at the same time
+     * @throws IllegalArgumentException if the sizes are invalid
+     * @throws ExcelException if starting a connection fails, connections started already are quit
+     */
+    public ExcelConnectionPool(Supplier<ExcelConnection> factory, int minSize, int maxSize) throws ExcelException, IllegalArgumentException {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        try {
+            for (int i = 0; i < minSize; i++) {
+                idle.add(create());
+                size++;
+            }
+        } catch (COMException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sets how long {@link #lease()} waits for a connection if all are leased. Default is 30 seconds.
+     * @return this
+     */
+    public ExcelConnectionPool setLeaseTimeout(long timeout, TimeUnit unit) {
+        this.leaseTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the number of leases after which a connection is recycled. Default is 0, i.e. never.
+     * @param maxLeases leases per excel instance, each lease is one operation, e.g. processing one workbook
+     * @return this
+     */
+    public ExcelConnectionPool setMaxLeases(int maxLeases) {
+        if (maxLeases < 0) {
+            throw new IllegalArgumentException("maxLeases must not be negative, but was " + maxLeases);
+        }
+        this.maxLeases = maxLeases;
+        return this;
+    }
+
+    /**
+     * Sets the time after which a connection is recycled. A leased connection is recycled when it's returned.
+     * Default is 0, i.e. never.
+     * @return this
+     */
+    public ExcelConnectionPool setMaxAge(long maxAge, TimeUnit unit) {
+        this.maxAgeNanos = unit.toNanos(maxAge);
+        return this;
+    }
+
+    /**
+     * Sets whether idle connections are checked before they are leased. Default is true.
+     * @return this
+     */
+    public ExcelConnectionPool setValidateOnLease(boolean validateOnLease) {
+        this.validateOnLease = validateOnLease;
+        return this;
+    }
+
+    /**
+     * @return maximum number of connections at the same time
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of connections, idle and leased
+     */
+    public int getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of idle connections
+     */
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of connections started since the pool was created
+     */
+    public long getCreatedCount() {
+        lock.lock();
+        try {
+            return createdCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Leases a connection. An idle connection is used if there is one, otherwise a new one is started
+     * unless the pool is full, then it waits until a connection is returned.
+     * @return lease which MUST be closed to return the connection
+     * @throws ExcelException if no connection was returned within the lease timeout or starting a connection fails
+     * @throws IllegalStateException if the pool is closed
+     */
+    public Lease lease() throws ExcelException, IllegalStateException {
+        PooledConnection pooled = reserve(System.nanoTime() + leaseTimeoutNanos);
+        if (pooled != null) {
+            if (!isExpired(pooled) && isValid(pooled)) {
+                pooled.leases++;
+                return new Lease(pooled);
+            }
+            quit(pooled.connection);
+        }
+
+        // the slot of the reserved or the discarded connection is used for a new one
+        try {
+            pooled = create();
+        } catch (COMException e) {
+            release();
+            throw e;
+        }
+        pooled.leases++;
+        return new Lease(pooled);
+    }
+
+    /**
+     * Takes an idle connection or reserves a slot for a new one
+     * @param deadline System.nanoTime() when waiting is given up
+     * @return idle connection or null if a slot was reserved
+     */
+    private PooledConnection reserve(long deadline) throws ExcelException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    return idle.pollFirst();
+                }
+                if (size < maxSize) {
+                    size++;
+                    return null;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new ExcelException("No excel connection available within the lease timeout, all " + maxSize + " are leased");
+                }
+                available.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelException("Interrupted while waiting for an excel connection");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the slot of a connection which was quit
+     */
+    private void release() {
+        lock.lock();
+        try {
+            size--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PooledConnection create() throws ExcelException {
+        PooledConnection pooled = new PooledConnection(factory.get());
+        lock.lock();
+        try {
+            createdCount++;
+        } finally {
+            lock.unlock();
+        }
+        return pooled;
+    }
+
+    private boolean isExpired(PooledConnection pooled) {
+        return (maxLeases > 0 && pooled.leases >= maxLeases)
+                || (maxAgeNanos > 0 && System.nanoTime() - pooled.created >= maxAgeNanos);
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        if (!validateOnLease) {
+            return true;
+        }
+        try {
+            pooled.connection.getVersion();
+            return true;
+        } catch (COMException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Quits a connection which is discarded, a failure means the instance is gone already
+     */
+    private static void quit(ExcelConnection connection) {
+        try {
+            connection.quit();
+        } catch (COMException e) {
+            // nothing left to clean up
+        }
+    }
+
+    /**
+     * Returns a leased connection
+     * @param broken true if the connection must not be reused
+     */
+    private void giveBack(PooledConnection pooled, boolean broken) {
+        if (!broken && !isExpired(pooled)) {
+            lock.lock();
+            try {
+                if (!closed) {
+                    idle.addFirst(pooled);
+                    available.signal();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        quit(pooled.connection);
+        release();
+        replenish();
+    }
+
+    /**
+     * Starts a connection if there are less than minSize. A failure is ignored, the next lease tries again.
+     */
+    private void replenish() {
+        lock.lock();
+        try {
+            if (closed || size >= minSize) {
+                return;
+            }
+            size++;
+        } finally {
+            lock.unlock();
+        }
+        PooledConnection pooled;
+        try {
+            pooled = create();
+        } catch (COMException e) {
+            release();
+            return;
+        }
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addLast(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        quit(pooled.connection);
+        release();
+    }
+
+    /**
+     * Quits all idle connections. Leased connections are quit when they are returned.
+     * @throws ExcelException if quitting fails, the other connections are quit anyway
+     */
+    public void close() throws ExcelException {
+        List<PooledConnection> connections;
+        lock.lock();
+        try {
+            closed = true;
+            connections = new ArrayList<>(idle);
+            idle.clear();
+            size -= connections.size();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        COMException failure = null;
+        for (PooledConnection pooled : connections) {
+            try {
+                pooled.connection.quit();
+            } catch (COMException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw new ExcelException(failure, "Failed to quit pooled excel instances");
+        }
+    }
+
+    private static class PooledConnection {
+        private final ExcelConnection connection;
+        private final long created = System.nanoTime();
+        private int leases = 0;
+
+        private PooledConnection(ExcelConnection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * A connection leased from the pool
+     */
+    public class Lease implements AutoCloseable {
+        private final PooledConnection pooled;
+        private volatile boolean broken = false;
+        private boolean returned = false;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        /**
+         * @return leased connection, it MUST NOT be quit or used after the lease was closed
+         * @throws IllegalStateException if the lease was closed
+         */
+        public ExcelConnection getConnection() throws IllegalStateException {
+            if (returned) {
+                throw new IllegalStateException("Lease is closed");
+            }
+            return pooled.connection;
+        }
+
+        /**
+         * Marks the connection as broken, e.g. after excel stopped responding. It's quit instead of reused.
+         */
+        public void invalidate() {
+            broken = true;
+        }
+
+        /**
+         * Returns the connection to the pool
+         */
+        public void close() {
+            if (!returned) {
+                returned = true;
+                giveBack(pooled, broken);
+            }
+        }
+    }
+}
@@ -9,4 +9,8 @@ public class ExcelException extends COMException {
     ExcelException(COMException e, String message) {
         super(message + "\n" + e.getMessage());
     }
+
+    ExcelException(String message) {
+        super(message);
+    }
 }
@@ -32,6 +32,11 @@ public class FindOptions {
         return this;
     }
 
+    public FindOptions setRange(RangeRef range) {
+        this.range = range.getAddress();
+        return this;
+    }
+
     public String getAfter() {
         return after;
     }
@@ -41,6 +46,11 @@ public class FindOptions {
         return this;
     }
 
+    public FindOptions setAfter(CellRef after) {
+        this.after = after.getAddress();
+        return this;
+    }
+
     public VbaConstant getLookIn() {
         return lookIn;
     }
@@ -1,8 +1,7 @@
 package excelcom.api;
 
 import com.sun.jna.platform.win32.COM.COMException;
-import com.sun.jna.platform.win32.COM.IDispatch;
-import com.sun.jna.platform.win32.WTypes;
+import excelcom.dispatch.Dispatch;
 
 /**
  * Represents a find result object. Row and Column number of the cell can be queried from it.
@@ -11,8 +10,8 @@ public class FindResult extends Range {
     private Range searchedRange;
     private int row = -1, column = -1;
 
-    FindResult(IDispatch iDispatch, Range searchedRange) {
-        super(iDispatch);
+    FindResult(Dispatch dispatch, Range searchedRange) {
+        super(dispatch);
         this.searchedRange = searchedRange;
         this.row = getRow();
         this.column = getColumn();
@@ -45,14 +44,14 @@ public class FindResult extends Range {
 
     public int getRow() {
         if(row == -1) {
-           row = this.invoke("Row").intValue() - 1;
+           row = super.getRow() - 1;
         }
         return row;
     }
 
     public int getColumn() {
         if(column == -1) {
-            column = this.invoke("Column").intValue() - 1;
+            column = super.getColumn() - 1;
         }
         return column;
     }
@@ -63,8 +62,7 @@ public class FindResult extends Range {
      */
     public Object getContent() throws ExcelException {
         try {
-            Object val = this.invoke("Value").getValue();
-            return (val instanceof WTypes.BSTR) ? val.toString() : val;
+            return this.getValue();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to content from find result");
         }
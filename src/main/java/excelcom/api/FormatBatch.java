@@ -0,0 +1,276 @@
+package excelcom.api;
+
+import excelcom.dispatch.CallTracer;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Collects color changes and applies them with as few calls as possible. Changes with the same color are grouped,
+ * adjacent cells are merged into rectangles and the rectangles are joined into multiple area addresses like
+ * "A1:B3,D7,F2:F9". Each address is colored with one Range, one Interior/Font/Borders and one ColorIndex call,
+ * instead of three calls per changed range. If a cell gets multiple colors of the same kind, the last one wins.
+ * The batch MUST be applied or closed, otherwise the changes are lost.
+ *
+ * <pre>
+ * try (FormatBatch batch = worksheet.formatBatch()) {
+ *     for (CellRef cell : worksheet.findAll("error")) {
+ *         batch.setFillColor(cell, ExcelColor.RED);
+ *     }
+ * }
+ * </pre>
+ */
+public class FormatBatch implements Closeable {
+    // excel rejects longer addresses in Range()
+    static final int MAX_ADDRESS_LENGTH = 255;
+
+    private enum Kind {
+        FILL, FONT, BORDER
+    }
+
+    private final Worksheet worksheet;
+    // groups which are applied one after another, a new stage is started if a change overlaps a range of
+    // another group of the same kind, so it's applied after that range
+    private final List<Map<Style, Group>> stages = new ArrayList<>();
+
+    FormatBatch(Worksheet worksheet) {
+        this.worksheet = worksheet;
+    }
+
+    /**
+     * Sets the fill (background) color of a range when the batch is applied
+     * @return this
+     */
+    public FormatBatch setFillColor(RangeRef range, ExcelColor color) {
+        return add(Kind.FILL, range, color);
+    }
+
+    /**
+     * @see #setFillColor(RangeRef, ExcelColor)
+     */
+    public FormatBatch setFillColor(CellRef cell, ExcelColor color) {
+        return add(Kind.FILL, RangeRef.of(cell.getRow(), cell.getColumn(), cell.getRow(), cell.getColumn()), color);
+    }
+
+    /**
+     * @see #setFillColor(RangeRef, ExcelColor)
+     * @param range range, e.g. "A1:B2"
+     */
+    public FormatBatch setFillColor(String range, ExcelColor color) throws IllegalArgumentException {
+        return add(Kind.FILL, RangeRef.parse(range), color);
+    }
+
+    /**
+     * Sets the font color of a range when the batch is applied
+     * @return this
+     */
+    public FormatBatch setFontColor(RangeRef range, ExcelColor color) {
+        return add(Kind.FONT, range, color);
+    }
+
+    /**
+     * @see #setFontColor(RangeRef, ExcelColor)
+     */
+    public FormatBatch setFontColor(CellRef cell, ExcelColor color) {
+        return add(Kind.FONT, RangeRef.of(cell.getRow(), cell.getColumn(), cell.getRow(), cell.getColumn()), color);
+    }
+
+    /**
+     * @see #setFontColor(RangeRef, ExcelColor)
+     * @param range range, e.g. "A1:B2"
+     */
+    public FormatBatch setFontColor(String range, ExcelColor color) throws IllegalArgumentException {
+        return add(Kind.FONT, RangeRef.parse(range), color);
+    }
+
+    /**
+     * Sets the border color of a range when the batch is applied
+     * @return this
+     */
+    public FormatBatch setBorderColor(RangeRef range, ExcelColor color) {
+        return add(Kind.BORDER, range, color);
+    }
+
+    /**
+     * @see #setBorderColor(RangeRef, ExcelColor)
+     */
+    public FormatBatch setBorderColor(CellRef cell, ExcelColor color) {
+        return add(Kind.BORDER, RangeRef.of(cell.getRow(), cell.getColumn(), cell.getRow(), cell.getColumn()), color);
+    }
+
+    /**
+     * @see #setBorderColor(RangeRef, ExcelColor)
+     * @param range range, e.g. "A1:B2"
+     */
+    public FormatBatch setBorderColor(String range, ExcelColor color) throws IllegalArgumentException {
+        return add(Kind.BORDER, RangeRef.parse(range), color);
+    }
+
+    private FormatBatch add(Kind kind, RangeRef range, ExcelColor color) {
+        Style style = new Style(kind, color);
+        if (stages.isEmpty() || overlapsOtherRange(stages.get(stages.size() - 1), style, range)) {
+            stages.add(new LinkedHashMap<>());
+        }
+        Map<Style, Group> stage = stages.get(stages.size() - 1);
+
+        // single cells of the same kind which are overwritten
+        for (Map.Entry<Style, Group> entry : stage.entrySet()) {
+            if (entry.getKey().kind == kind && !entry.getKey().equals(style)) {
+                entry.getValue().removeCells(range);
+            }
+        }
+        stage.computeIfAbsent(style, s -> new Group()).add(range);
+        return this;
+    }
+
+    /**
+     * @return true if a range of another group of the same kind overlaps the range
+     */
+    private static boolean overlapsOtherRange(Map<Style, Group> stage, Style style, RangeRef range) {
+        for (Map.Entry<Style, Group> entry : stage.entrySet()) {
+            if (entry.getKey().kind == style.kind && !entry.getKey().equals(style)) {
+                for (RangeRef other : entry.getValue().ranges) {
+                    if (other.intersect(range) != null) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of calls to Range needed to apply the batch
+     */
+    public int getPendingAddressCount() {
+        int count = 0;
+        for (Map<Style, Group> stage : stages) {
+            for (Group group : stage.values()) {
+                count += group.toAddresses().size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Applies all changes
+     * @throws ExcelException if a color can't be set, the changes of this and the following groups stay pending
+     */
+    public void apply() throws ExcelException {
+        try (CallTracer.Span span = CallTracer.getInstance().span("FormatBatch.apply", null)) {
+            for (Iterator<Map<Style, Group>> stageIterator = stages.iterator(); stageIterator.hasNext(); ) {
+                Map<Style, Group> stage = stageIterator.next();
+                for (Iterator<Map.Entry<Style, Group>> it = stage.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Style, Group> entry = it.next();
+                    for (String address : entry.getValue().toAddresses()) {
+                        apply(entry.getKey(), address);
+                    }
+                    it.remove();
+                }
+                stageIterator.remove();
+            }
+        }
+    }
+
+    private void apply(Style style, String address) throws ExcelException {
+        switch (style.kind) {
+            case FILL:
+                worksheet.setFillColor(address, style.color);
+                break;
+            case FONT:
+                worksheet.setFontColor(address, style.color);
+                break;
+            default:
+                worksheet.setBorderColor(address, style.color);
+        }
+    }
+
+    /**
+     * Applies all changes
+     * @throws ExcelException if a color can't be set
+     */
+    public void close() throws ExcelException {
+        apply();
+    }
+
+    /**
+     * Kind and color of a change
+     */
+    private static class Style {
+        private final Kind kind;
+        private final ExcelColor color;
+
+        Style(Kind kind, ExcelColor color) {
+            this.kind = kind;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Style style = (Style) o;
+            return kind == style.kind && color == style.color;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, color);
+        }
+    }
+
+    /**
+     * Ranges which get the same style. Single cells are collected separately to be merged into rectangles.
+     */
+    private static class Group {
+        private final TreeSet<Long> cells = new TreeSet<>();
+        private final List<RangeRef> ranges = new ArrayList<>();
+
+        void add(RangeRef range) {
+            if (range.isSingleCell()) {
+                cells.add(CellRectangles.key(range.getFirstRow(), range.getFirstColumn()));
+            } else {
+                ranges.add(range);
+            }
+        }
+
+        void removeCells(RangeRef range) {
+            if (range.isSingleCell()) {
+                cells.remove(CellRectangles.key(range.getFirstRow(), range.getFirstColumn()));
+            } else {
+                cells.removeIf(key -> range.contains(CellRectangles.row(key), CellRectangles.column(key)));
+            }
+        }
+
+        /**
+         * Joins the ranges into multiple area addresses which don't exceed the maximum address length
+         */
+        List<String> toAddresses() {
+            List<RangeRef> areas = new ArrayList<>(ranges);
+            areas.addAll(CellRectangles.merge(cells));
+            List<String> addresses = new ArrayList<>();
+            StringBuilder address = new StringBuilder(MAX_ADDRESS_LENGTH);
+            for (RangeRef area : areas) {
+                String areaAddress = area.getAddress();
+                if (address.length() > 0 && address.length() + 1 + areaAddress.length() > MAX_ADDRESS_LENGTH) {
+                    addresses.add(address.toString());
+                    address.setLength(0);
+                }
+                if (address.length() > 0) {
+                    address.append(',');
+                }
+                address.append(areaAddress);
+            }
+            if (address.length() > 0) {
+                addresses.add(address.toString());
+            }
+            return addresses;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package excelcom.api;
+
+import excelcom.dispatch.ComScope;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Workbooks of a connection by name, so a workbook is resolved once and its cached worksheets are kept.
+ * Cached handles are owned by the registry: they are not released by a {@link ComScope}, but when they are invalidated
+ * by close or quit.
+ * Only for internal use
+ */
+class HandleRegistry {
+    private final Map<String, Workbook> workbooks = new HashMap<>();
+
+    /**
+     * @return key of a workbook or worksheet name, names are case insensitive in excel
+     */
+    static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return cached workbook or null
+     */
+    synchronized Workbook get(String name) {
+        return workbooks.get(key(name));
+    }
+
+    /**
+     * Caches a workbook, unless a workbook with the same name is cached already
+     * @param workbook resolved workbook
+     * @param name name of the workbook
+     * @return cached workbook
+     */
+    synchronized Workbook put(Workbook workbook, String name) {
+        Workbook cached = workbooks.putIfAbsent(key(name), workbook);
+        if (cached != null) {
+            if (cached != workbook) {
+                workbook.release();
+            }
+            return cached;
+        }
+        workbook.keep();
+        return workbook;
+    }
+
+    /**
+     * Removes a workbook, e.g. because it was closed
+     */
+    synchronized void remove(Workbook workbook) {
+        workbooks.values().removeIf(cached -> cached == workbook);
+    }
+
+    /**
+     * Caches a workbook under its new name, e.g. after SaveAs. Does nothing if it's not cached.
+     */
+    synchronized void rename(Workbook workbook, String name) {
+        if (workbooks.values().removeIf(cached -> cached == workbook)) {
+            workbooks.put(key(name), workbook);
+        }
+    }
+
+    /**
+     * Releases all workbooks and their worksheets, e.g. before quit
+     */
+    void clear() {
+        List<Workbook> released;
+        synchronized (this) {
+            released = new ArrayList<>(workbooks.values());
+            workbooks.clear();
+        }
+        for (Workbook workbook : released) {
+            workbook.release();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package excelcom.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Written ranges of a {@link WriteListener} which have to be read again. After too many ranges or an unknown one,
+ * everything is invalid, as loading everything again is cheaper than many small reads and checks.
+ */
+final class InvalidRanges {
+    private static final int MAX_RANGES = 64;
+
+    private final List<RangeRef> ranges = new ArrayList<>();
+    private boolean all;
+
+    /**
+     * @param range written range or null if it's unknown
+     */
+    void add(RangeRef range) {
+        if (range == null) {
+            all = true;
+        } else if (!all) {
+            ranges.add(range);
+            all = ranges.size() > MAX_RANGES;
+        }
+    }
+
+    /**
+     * @return true if everything has to be loaded again
+     */
+    boolean isAll() {
+        return all;
+    }
+
+    /**
+     * @return last invalid range or null if there are none left
+     */
+    RangeRef peek() {
+        return ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+    }
+
+    /**
+     * Removes a range after it was read again
+     * @param range range returned by this object
+     */
+    void remove(RangeRef range) {
+        for (int i = ranges.size() - 1; i >= 0; i--) {
+            if (ranges.get(i) == range) {
+                ranges.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return an invalid range which contains the cell or null if the cell is valid
+     */
+    RangeRef find(int row, int column) {
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.get(i).contains(row, column)) {
+                return ranges.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks everything as valid after it was loaded again
+     */
+    void clear() {
+        ranges.clear();
+        all = false;
+    }
+}
@@ -1,73 +1,91 @@
 package excelcom.api;
 
 import com.sun.jna.platform.win32.COM.COMException;
-import com.sun.jna.platform.win32.COM.COMLateBindingObject;
-import com.sun.jna.platform.win32.COM.IDispatch;
-import com.sun.jna.platform.win32.OaIdl;
-import com.sun.jna.platform.win32.OleAuto;
-import com.sun.jna.platform.win32.Variant;
-
-import static com.sun.jna.platform.win32.Variant.VT_NULL;
+import excelcom.dispatch.Dispatch;
 
 /**
  * Represents a Range
  */
-class Range extends COMLateBindingObject {
-    Range(IDispatch iDispatch) throws COMException {
-        super(iDispatch);
+class Range {
+    final Dispatch dispatch;
+
+    Range(Dispatch dispatch) throws COMException {
+        this.dispatch = dispatch;
+    }
+
+    Object getValue() {
+        return this.dispatch.call("Value");
+    }
+
+    /**
+     * @return formula of a single cell as String, for multiple cells a CellMatrix of Strings
+     */
+    Object getFormula() {
+        return this.dispatch.get("Formula");
+    }
+
+    void setValue(Object value) {
+        this.dispatch.put("Value", value);
     }
 
-    Variant.VARIANT getValue() {
-        return this.invoke("Value");
+    /**
+     * @return address without $, e.g. "A1:C3"
+     */
+    String getAddress() {
+        return (String) this.dispatch.get("Address", false, false);
     }
 
     int getRow() {
-        return this.invoke("Row").intValue();
+        return ((Number) this.dispatch.call("Row")).intValue();
     }
 
     int getColumn() {
-        return this.invoke("Column").intValue();
+        return ((Number) this.dispatch.call("Column")).intValue();
     }
 
     void setInteriorColor(ExcelColor color) {
-        new CellPane(this.getAutomationProperty("Interior", this)).setColorIndex(color);
+        new CellPane((Dispatch) this.dispatch.get("Interior")).setColorIndex(color);
     }
 
     ExcelColor getInteriorColor() {
-        return ExcelColor.getColor(new CellPane(this.getAutomationProperty("Interior", this)).getColorIndex());
+        return ExcelColor.getColor(new CellPane((Dispatch) this.dispatch.get("Interior")).getColorIndex());
     }
 
     void setFontColor(ExcelColor color) {
-        new CellPane(this.getAutomationProperty("Font", this)).setColorIndex(color);
+        new CellPane((Dispatch) this.dispatch.get("Font")).setColorIndex(color);
     }
 
     ExcelColor getFontColor() {
-        return ExcelColor.getColor(new CellPane(this.getAutomationProperty("Font", this)).getColorIndex());
+        return ExcelColor.getColor(new CellPane((Dispatch) this.dispatch.get("Font")).getColorIndex());
     }
 
     void setBorderColor(ExcelColor color) {
-        new CellPane(this.getAutomationProperty("Borders", this)).setColorIndex(color);
+        new CellPane((Dispatch) this.dispatch.get("Borders")).setColorIndex(color);
     }
 
     ExcelColor getBorderColor() {
-        return ExcelColor.getColor(new CellPane(this.getAutomationProperty("Borders", this)).getColorIndex());
+        return ExcelColor.getColor(new CellPane((Dispatch) this.dispatch.get("Borders")).getColorIndex());
+    }
+
+    /**
+     * @param pane Interior, Font or Borders
+     * @return color index of the range or null if the cells have different colors
+     */
+    Integer getColorIndexOrNull(String pane) {
+        return new CellPane((Dispatch) this.dispatch.get(pane)).getColorIndexOrNull();
     }
 
     void setComment(String comment) {
-        this.invokeNoReply("ClearComments");
-        this.invoke("AddComment", new Variant.VARIANT(comment));
+        this.dispatch.call("ClearComments");
+        this.dispatch.call("AddComment", comment);
     }
 
     String getComment() {
-        return new COMLateBindingObject(this.getAutomationProperty("Comment")) {
-            private String getText() {
-                return this.invoke("Text").stringValue();
-            }
-        }.getText();
+        return (String) ((Dispatch) this.dispatch.get("Comment")).call("Text");
     }
 
-    FindResult find(Variant.VARIANT[] options) {
-        IDispatch find = (IDispatch) this.invoke("Find", options).getValue();
+    FindResult find(Object[] options) {
+        Dispatch find = (Dispatch) this.dispatch.call("Find", options);
         if (find == null) {
             return null;
         }
@@ -75,27 +93,34 @@ class Range extends COMLateBindingObject {
     }
 
     FindResult findNext(FindResult previous) {
-        return new FindResult(this.getAutomationProperty("FindNext", this, previous.toVariant()), this);
+        return new FindResult((Dispatch) this.dispatch.get("FindNext", previous.dispatch), this);
     }
 
     /**
      * Can be Interior, Border or Font. Has methods for setting e.g. Color.
      */
-    private class CellPane extends COMLateBindingObject {
-        CellPane(IDispatch iDispatch) {
-            super(iDispatch);
+    private class CellPane {
+        private final Dispatch dispatch;
+
+        CellPane(Dispatch dispatch) {
+            this.dispatch = dispatch;
         }
 
         void setColorIndex(ExcelColor color) {
-            this.setProperty("ColorIndex", color.getIndex());
+            this.dispatch.put("ColorIndex", color.getIndex());
         }
 
         int getColorIndex() {
-            Variant.VARIANT colorIndex = this.invoke("ColorIndex");
-            if(colorIndex.getVarType().intValue() == VT_NULL) {
+            Integer colorIndex = getColorIndexOrNull();
+            if(colorIndex == null) {
                 throw new NullPointerException("return type of colorindex is null. Maybe multiple colors in range?");
             }
-            return this.invoke("ColorIndex").intValue();
+            return colorIndex;
+        }
+
+        Integer getColorIndexOrNull() {
+            Object colorIndex = this.dispatch.call("ColorIndex");
+            return colorIndex == null ? null : ((Number) colorIndex).intValue();
         }
     }
 }
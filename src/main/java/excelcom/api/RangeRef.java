@@ -0,0 +1,164 @@
+package excelcom.api;
+
+import excelcom.util.AddressParser;
+
+/**
+ * Immutable reference to a rectangular range. Can be passed to the methods of Worksheet instead of an address
+ * string, the address is rendered once and cached.
+ */
+public final class RangeRef {
+    private final int firstRow;
+    private final int firstColumn;
+    private final int lastRow;
+    private final int lastColumn;
+    private String address = null;
+
+    private RangeRef(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        this.lastRow = lastRow;
+        this.lastColumn = lastColumn;
+    }
+
+    /**
+     * Creates a reference to a range. Reversed bounds are swapped like excel does.
+     * @param firstRow lower bound row index, 0-based
+     * @param firstColumn lower bound column index, 0-based
+     * @param lastRow upper bound row index, 0-based
+     * @param lastColumn upper bound column index, 0-based
+     * @return reference to the range
+     * @throws IllegalArgumentException if an index is out of range
+     */
+    public static RangeRef of(int firstRow, int firstColumn, int lastRow, int lastColumn) throws IllegalArgumentException {
+        CellRef.checkRow(firstRow);
+        CellRef.checkRow(lastRow);
+        CellRef.checkColumn(firstColumn);
+        CellRef.checkColumn(lastColumn);
+        return new RangeRef(Math.min(firstRow, lastRow), Math.min(firstColumn, lastColumn),
+                Math.max(firstRow, lastRow), Math.max(firstColumn, lastColumn));
+    }
+
+    /**
+     * Creates a reference from an address, see {@link AddressParser} for supported formats
+     * @param address address of the range
+     * @return reference to the range
+     * @throws IllegalArgumentException if address is invalid
+     */
+    public static RangeRef parse(String address) throws IllegalArgumentException {
+        int[] bounds = new int[4];
+        AddressParser.parse(address, bounds);
+        return new RangeRef(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    /**
+     * @return lower bound row index, 0-based
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return lower bound column index, 0-based
+     */
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    /**
+     * @return upper bound row index, 0-based
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * @return upper bound column index, 0-based
+     */
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    public int getRowCount() {
+        return lastRow - firstRow + 1;
+    }
+
+    public int getColumnCount() {
+        return lastColumn - firstColumn + 1;
+    }
+
+    public boolean isSingleCell() {
+        return firstRow == lastRow && firstColumn == lastColumn;
+    }
+
+    /**
+     * @return upper left cell of the range
+     */
+    public CellRef getFirstCell() {
+        return CellRef.of(firstRow, firstColumn);
+    }
+
+    /**
+     * Checks if a cell is inside of this range
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return true if the cell is inside
+     */
+    public boolean contains(int row, int column) {
+        return row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn;
+    }
+
+    /**
+     * Gets the cells which are inside of this and another range
+     * @param other other range
+     * @return overlapping range or null if the ranges don't overlap
+     */
+    public RangeRef intersect(RangeRef other) {
+        int top = Math.max(firstRow, other.firstRow), bottom = Math.min(lastRow, other.lastRow);
+        int left = Math.max(firstColumn, other.firstColumn), right = Math.min(lastColumn, other.lastColumn);
+        if (top > bottom || left > right) {
+            return null;
+        }
+        return new RangeRef(top, left, bottom, right);
+    }
+
+    /**
+     * @return address in A1 notation, e.g. "A1:C3" or "B5" for a single cell
+     */
+    public String getAddress() {
+        String a = address;
+        if (a == null) {
+            StringBuilder builder = new StringBuilder(isSingleCell() ? 10 : 20);
+            CellRef.appendAddress(builder, firstRow, firstColumn);
+            if (!isSingleCell()) {
+                builder.append(':');
+                CellRef.appendAddress(builder, lastRow, lastColumn);
+            }
+            address = a = builder.toString();
+        }
+        return a;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RangeRef that = (RangeRef) o;
+        return firstRow == that.firstRow && firstColumn == that.firstColumn
+                && lastRow == that.lastRow && lastColumn == that.lastColumn;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = firstRow;
+        result = 31 * result + firstColumn;
+        result = 31 * result + lastRow;
+        result = 31 * result + lastColumn;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getAddress();
+    }
+}
@@ -0,0 +1,204 @@
+package excelcom.api;
+
+import excelcom.dispatch.CellMatrix;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the rows of a range block by block, so only two blocks are held in memory no matter how large the range is.
+ * While the rows of one block are processed, the next block can be read by a background thread.
+ * The cursor MUST be closed, otherwise the background thread and the last blocks are kept.
+ *
+ * <pre>
+ * try (RowCursor cursor = worksheet.getRowCursor(10000)) {
+ *     while (cursor.hasNext()) {
+ *         Object[] row = cursor.next();
+ *     }
+ * }
+ * </pre>
+ */
+public class RowCursor implements Iterator<Object[]>, Closeable {
+
+    private final Worksheet worksheet;
+    private final RangeRef range;
+    private final int blockSize;
+    private final ExecutorService prefetcher;
+
+    private CellMatrix block;
+    private int blockRow;
+    private int nextRow;
+    private int nextBlockStart;
+    private Future<CellMatrix> nextBlock;
+    private boolean closed;
+
+    /**
+     * @param worksheet worksheet to be read
+     * @param range range to be read
+     * @param blockSize number of rows per read
+     * @param prefetch if true, the next block is read by a background thread
+     */
+    RowCursor(Worksheet worksheet, RangeRef range, int blockSize, boolean prefetch) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("block size must be positive, but was " + blockSize);
+        }
+        this.worksheet = worksheet;
+        this.range = range;
+        this.blockSize = blockSize;
+        this.nextBlockStart = range.getFirstRow();
+        this.nextRow = range.getFirstRow();
+        this.prefetcher = prefetch ? Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "excelcom-row-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * @return range which is read
+     */
+    public RangeRef getRange() {
+        return range;
+    }
+
+    /**
+     * @return index of the sheet row which is returned by the next call of {@link #next()}, 0-based
+     */
+    public int getNextRow() {
+        return nextRow;
+    }
+
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (block != null && blockRow < block.getRowCount()) {
+            return true;
+        }
+        if (nextBlock == null && nextBlockStart > range.getLastRow()) {
+            return false;
+        }
+        advance();
+        return true;
+    }
+
+    /**
+     * @return values of the next row, the array is not reused
+     * @throws ExcelException if reading a block fails
+     */
+    public Object[] next() throws ExcelException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] row = new Object[block.getColumnCount()];
+        for (int column = 0; column < row.length; column++) {
+            row[column] = block.get(blockRow, column);
+        }
+        blockRow++;
+        nextRow++;
+        return row;
+    }
+
+    /**
+     * Replaces the current block by the next one and starts reading the block after it
+     */
+    private void advance() {
+        if (block != null) {
+            block.close();
+            block = null;
+        }
+        if (nextBlock == null) {
+            nextBlock = readBlock();
+        }
+        Future<CellMatrix> current = nextBlock;
+        nextBlock = null;
+        block = await(current);
+        blockRow = 0;
+        if (prefetcher != null && nextBlockStart <= range.getLastRow()) {
+            nextBlock = readBlock();
+        }
+    }
+
+    private Future<CellMatrix> readBlock() {
+        final RangeRef blockRange = RangeRef.of(nextBlockStart, range.getFirstColumn(),
+                Math.min(nextBlockStart + blockSize - 1, range.getLastRow()), range.getLastColumn());
+        nextBlockStart = blockRange.getLastRow() + 1;
+        if (prefetcher == null) {
+            // read synchronously, the future is completed already
+            CompletableFuture<CellMatrix> future = new CompletableFuture<>();
+            try {
+                future.complete(worksheet.getCellMatrix(blockRange));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        return prefetcher.submit(() -> worksheet.getCellMatrix(blockRange));
+    }
+
+    private static CellMatrix await(Future<CellMatrix> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading rows", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return spliterator over the remaining rows, which are read by this cursor
+     */
+    public Spliterator<Object[]> spliterator() {
+        long remaining = closed ? 0 : range.getLastRow() - getNextRow() + 1L;
+        return Spliterators.spliterator(this, remaining,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * @return sequential stream over the remaining rows, closing the stream closes the cursor
+     */
+    public Stream<Object[]> stream() {
+        return StreamSupport.stream(spliterator(), false).onClose(this::close);
+    }
+
+    /**
+     * Releases the blocks and stops the background thread
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (block != null) {
+            block.close();
+            block = null;
+        }
+        if (nextBlock != null && !nextBlock.cancel(false)) {
+            // already read or being read, release it when it's done
+            try {
+                await(nextBlock).close();
+            } catch (RuntimeException e) {
+                // the block isn't needed anymore
+            }
+        }
+        nextBlock = null;
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package excelcom.api;
+
+import excelcom.dispatch.MarshaledSize;
+import excelcom.util.AddressParser;
+
+import java.io.Closeable;
+
+/**
+ * Writes rows one by one below a start cell. Rows are buffered and written as one block when the buffer
+ * holds {@link #setMaxRows(int) maxRows} rows or its estimated size reaches {@link #setMaxBytes(long) maxBytes},
+ * so arbitrarily many rows can be written with bounded memory. The sink MUST be closed to write the last rows.
+ *
+ * <pre>
+ * try (RowSink sink = worksheet.getRowSink(CellRef.parse("A2"))) {
+ *     sink.append("name", 1.5, true);
+ * }
+ * </pre>
+ */
+public class RowSink implements Closeable {
+    private final Worksheet worksheet;
+    private final int column;
+    private int maxRows = 10000;
+    private long maxBytes = 16L * 1024 * 1024;
+
+    private Object[][] buffer = new Object[16][];
+    private int bufferedRows;
+    private long bufferedBytes;
+    private int nextRow;
+    private long writtenRows;
+    private boolean closed;
+
+    /**
+     * @param worksheet worksheet to be written
+     * @param start upper left cell of the first row
+     */
+    RowSink(Worksheet worksheet, CellRef start) {
+        this.worksheet = worksheet;
+        this.column = start.getColumn();
+        this.nextRow = start.getRow();
+    }
+
+    /**
+     * Sets the number of rows after which the buffer is written. Default is 10000.
+     * @param maxRows rows per write
+     * @return this
+     */
+    public RowSink setMaxRows(int maxRows) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("maxRows must be positive, but was " + maxRows);
+        }
+        this.maxRows = maxRows;
+        return this;
+    }
+
+    /**
+     * Sets the estimated size of the buffered values after which the buffer is written. Default is 16 MiB.
+     * @param maxBytes bytes per write
+     * @return this
+     */
+    public RowSink setMaxBytes(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive, but was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * @return index of the sheet row the next appended row will be written to, 0-based
+     */
+    public int getNextRow() {
+        return nextRow + bufferedRows;
+    }
+
+    /**
+     * @return number of rows written to the worksheet so far, buffered rows are not counted
+     */
+    public long getWrittenRows() {
+        return writtenRows;
+    }
+
+    /**
+     * Appends a row. The values are copied, so the array may be reused.
+     * @param row values of the row, see {@link Worksheet#setContent(String, Object[][])} for supported types
+     * @throws IllegalArgumentException if the worksheet has no more rows or the row exceeds the last column
+     * @throws IllegalStateException if the sink was closed
+     * @throws ExcelException if writing the buffer fails
+     */
+    public void append(Object... row) throws ExcelException, IllegalArgumentException, IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("RowSink is closed");
+        }
+        if (getNextRow() >= AddressParser.MAX_ROWS) {
+            throw new IllegalArgumentException("Worksheet has no more rows");
+        }
+        if (row.length > AddressParser.MAX_COLUMNS - column) {
+            throw new IllegalArgumentException("Row of " + row.length + " values exceeds the last column");
+        }
+        if (bufferedRows == buffer.length) {
+            Object[][] grown = new Object[Math.min(buffer.length * 2, Math.max(maxRows, buffer.length + 1))][];
+            System.arraycopy(buffer, 0, grown, 0, bufferedRows);
+            buffer = grown;
+        }
+        buffer[bufferedRows++] = row.clone();
+        bufferedBytes += MarshaledSize.ofRow(row);
+        if (bufferedRows >= maxRows || bufferedBytes >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered rows as one block. Rows shorter than the longest row are filled with empty cells,
+     * rows without values are skipped.
+     * @throws ExcelException if writing fails, the rows stay buffered then
+     */
+    public void flush() throws ExcelException {
+        if (bufferedRows == 0) {
+            return;
+        }
+        int columnCount = 0;
+        for (int i = 0; i < bufferedRows; i++) {
+            columnCount = Math.max(columnCount, buffer[i].length);
+        }
+        if (columnCount > 0) {
+            Object[][] block = new Object[bufferedRows][];
+            System.arraycopy(buffer, 0, block, 0, bufferedRows);
+            worksheet.setContent(RangeRef.of(nextRow, column, nextRow + bufferedRows - 1, column + columnCount - 1), block);
+        }
+
+        nextRow += bufferedRows;
+        writtenRows += bufferedRows;
+        for (int i = 0; i < bufferedRows; i++) {
+            buffer[i] = null;
+        }
+        bufferedRows = 0;
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Writes the remaining rows. Further rows can't be appended.
+     * @throws ExcelException if writing fails
+     */
+    public void close() throws ExcelException {
+        if (!closed) {
+            flush();
+            closed = true;
+        }
+    }
+}
@@ -12,7 +12,9 @@ public enum VbaConstant {
     XL_BY_ROWS(1),
     XL_BY_COLUMNS(2),
     XL_NEXT(1),
-    XL_PREVIOUS(2);
+    XL_PREVIOUS(2),
+    XL_CALCULATION_AUTOMATIC(-4105),
+    XL_CALCULATION_MANUAL(-4135);
 
     private int index;
 
@@ -1,19 +1,34 @@
 package excelcom.api;
 
 import com.sun.jna.platform.win32.COM.COMException;
-import com.sun.jna.platform.win32.COM.COMLateBindingObject;
-import com.sun.jna.platform.win32.COM.IDispatch;
-import com.sun.jna.platform.win32.Variant;
+import excelcom.dispatch.ComScope;
+import excelcom.dispatch.Dispatch;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a excelcom.api.Workbook
+ *
+ * Worksheets are cached by name. The names are enumerated once on the first lookup, so switching between
+ * worksheets doesn't call excel. Renaming or deleting a worksheet through its wrapper updates the cache,
+ * changes made otherwise need a {@link #refreshWorksheets()}.
  */
-public class Workbook extends COMLateBindingObject {
+public class Workbook {
+    private final Dispatch dispatch;
+    // registry of the connection, null if the workbook is not cached
+    private final HandleRegistry registry;
+    // worksheets by key of their name, null until they are enumerated
+    private Map<String, Worksheet> worksheets = null;
+    // names as shown in excel by key, in the order of worksheets
+    private Map<String, String> worksheetNames = null;
 
-    Workbook(IDispatch iDispatch) throws COMException {
-        super(iDispatch);
+    Workbook(Dispatch dispatch, HandleRegistry registry) throws COMException {
+        this.dispatch = dispatch;
+        this.registry = registry;
     }
 
     /**
@@ -22,7 +37,7 @@ public class Workbook extends COMLateBindingObject {
      */
     public String getName() {
         try {
-            return this.getStringProperty("Name");
+            return (String) this.dispatch.get("Name");
         } catch (COMException e) {
             throw new ExcelException(e, "Failed get name of workbook");
         }
@@ -34,10 +49,14 @@ public class Workbook extends COMLateBindingObject {
      */
     public void close(boolean save) {
         try {
-            this.invokeNoReply("Close", new Variant.VARIANT(save));
+            this.dispatch.call("Close", save);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to " + (save ? "save and " : "") + "close workbook");
         }
+        if (registry != null) {
+            registry.remove(this);
+        }
+        release();
     }
 
     /**
@@ -46,7 +65,7 @@ public class Workbook extends COMLateBindingObject {
      */
     public void save() throws COMException {
         try {
-            this.invokeNoReply("Save");
+            this.dispatch.call("Save");
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to save workbook");
         }
@@ -59,10 +78,13 @@ public class Workbook extends COMLateBindingObject {
      */
     public void saveAs(File file) throws ExcelException {
         try {
-            this.invokeNoReply("SaveAs", new Variant.VARIANT(file.getAbsolutePath()));
+            this.dispatch.call("SaveAs", file.getAbsolutePath());
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to save workbook to " + file.getAbsolutePath());
         }
+        if (registry != null) {
+            registry.rename(this, getName());
+        }
     }
 
     /**
@@ -70,7 +92,7 @@ public class Workbook extends COMLateBindingObject {
      * @return list of worksheets
      */
     public Worksheets getWorksheets() {
-        return new Worksheets(this.getAutomationProperty("Worksheets"));
+        return new Worksheets((Dispatch) this.dispatch.get("Worksheets"), this);
     }
 
     /**
@@ -78,23 +100,168 @@ public class Workbook extends COMLateBindingObject {
      * @return a excelcom.api.Worksheet instance representing the newly created worksheet
      */
     public Worksheet addWorksheet(String name) throws ExcelException {
-        try {
-            return getWorksheets().addWorksheet(name);
+        Worksheet ws;
+        try (ComScope scope = ComScope.open()) {
+            // enumerated first, so the new worksheet can be cached
+            worksheets();
+            ws = getWorksheets().addWorksheet(name);
+            ws.keep();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to add worksheet named " + name);
         }
+        synchronized (this) {
+            worksheets();
+            cache(name, ws);
+        }
+        return ws;
     }
 
     /**
-     * Gets the named worksheet
+     * Gets the named worksheet. The worksheets are enumerated on the first call and cached afterwards.
      * @param name Name of worksheet to get
-     * @return excelcom.api.Worksheet
+     * @return excelcom.api.Worksheet, the same instance for the same name
      */
     public Worksheet getWorksheet(String name) throws ExcelException {
+        synchronized (this) {
+            Worksheet cached = worksheets().get(HandleRegistry.key(name));
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // e.g. added by a macro after the enumeration
+        Worksheet ws;
+        String actualName;
         try {
-            return new Worksheet(this.getAutomationProperty("Worksheets", this, new Variant.VARIANT(name)));
+            ws = new Worksheet((Dispatch) this.dispatch.get("Worksheets", name), this);
+            ws.keep();
+            actualName = ws.getName();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get worksheet named " + name);
         }
+        synchronized (this) {
+            worksheets();
+            cache(actualName, ws);
+        }
+        return ws;
+    }
+
+    /**
+     * Gets the names of all worksheets from the cache, enumerating them if they are not cached yet
+     * @return names of the worksheets
+     */
+    public synchronized List<String> getWorksheetNames() throws ExcelException {
+        worksheets();
+        return new ArrayList<>(worksheetNames.values());
+    }
+
+    /**
+     * Drops the cached worksheets, e.g. after they were changed by a macro. They are enumerated again on the next lookup.
+     */
+    public void refreshWorksheets() {
+        List<Worksheet> released;
+        synchronized (this) {
+            if (worksheets == null) {
+                return;
+            }
+            released = new ArrayList<>(worksheets.values());
+            worksheets = null;
+            worksheetNames = null;
+        }
+        for (Worksheet ws : released) {
+            ws.release();
+        }
+    }
+
+    /**
+     * Enumerates the worksheets once with Count and Item
+     * @return worksheets by key of their name
+     */
+    private Map<String, Worksheet> worksheets() throws ExcelException {
+        if (worksheets == null) {
+            Map<String, Worksheet> enumerated = new LinkedHashMap<>();
+            Map<String, String> names = new LinkedHashMap<>();
+            try (ComScope scope = ComScope.open()) {
+                Dispatch sheets = (Dispatch) this.dispatch.get("Worksheets");
+                int count = ((Number) sheets.get("Count")).intValue();
+                for (int i = 1; i <= count; i++) {
+                    Worksheet ws = new Worksheet((Dispatch) sheets.get("Item", i), this);
+                    ws.keep();
+                    String name = ws.getName();
+                    enumerated.put(HandleRegistry.key(name), ws);
+                    names.put(HandleRegistry.key(name), name);
+                }
+            } catch (COMException e) {
+                for (Worksheet ws : enumerated.values()) {
+                    ws.release();
+                }
+                throw new ExcelException(e, "Failed to enumerate worksheets");
+            }
+            worksheets = enumerated;
+            worksheetNames = names;
+        }
+        return worksheets;
+    }
+
+    /**
+     * Caches an enumerated worksheet by its name
+     */
+    private void cache(String name, Worksheet worksheet) {
+        worksheets.put(HandleRegistry.key(name), worksheet);
+        worksheetNames.put(HandleRegistry.key(name), name);
+    }
+
+    /**
+     * Removes a worksheet from the cache
+     * @return true if it was cached
+     */
+    private boolean uncache(Worksheet worksheet) {
+        if (worksheets == null) {
+            return false;
+        }
+        for (Map.Entry<String, Worksheet> entry : worksheets.entrySet()) {
+            if (entry.getValue() == worksheet) {
+                worksheets.remove(entry.getKey());
+                worksheetNames.remove(entry.getKey());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called by a worksheet after it was renamed
+     */
+    synchronized void renamed(Worksheet worksheet, String name) {
+        if (uncache(worksheet)) {
+            cache(name, worksheet);
+        }
+    }
+
+    /**
+     * Called by a worksheet after it was deleted
+     */
+    void deleted(Worksheet worksheet) {
+        boolean cached;
+        synchronized (this) {
+            cached = uncache(worksheet);
+        }
+        if (cached) {
+            worksheet.release();
+        }
+    }
+
+    /**
+     * Removes the workbook from the scopes of the current thread, it's owned by the registry
+     */
+    void keep() {
+        ComScope.keep(this.dispatch);
+    }
+
+    /**
+     * Releases the cached worksheets and the workbook
+     */
+    void release() {
+        refreshWorksheets();
+        this.dispatch.release();
     }
 }
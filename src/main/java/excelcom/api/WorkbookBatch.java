@@ -0,0 +1,302 @@
+package excelcom.api;
+
+import com.sun.jna.platform.win32.COM.COMException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the same job on many workbooks, distributed over the excel instances of an {@link ExcelConnectionPool}.
+ * Each workbook is opened, passed to the job and closed without saving:
+ *
+ * <pre>
+ * try (ExcelConnectionPool pool = new ExcelConnectionPool(ExcelConnection::connectOnComThread, 0, 4)) {
+ *     BatchReport&lt;Object[][]&gt; report = new WorkbookBatch&lt;&gt;(pool, wb -&gt; wb.getWorksheet("data").getContent())
+ *             .setTimeout(1, TimeUnit.MINUTES)
+ *             .run(files);
+ * }
+ * </pre>
+ *
+ * The jobs run on worker threads, so the pool should create connections on a COM thread,
+ * see {@link ExcelConnection#connectOnComThread()}. If a job fails and its excel instance doesn't respond anymore,
+ * the instance is replaced and the job is retried. Other failures are reported in the {@link BatchResult}.
+ */
+public class WorkbookBatch<T> {
+
+    /**
+     * Job processing one workbook
+     */
+    public interface Job<T> {
+        /**
+         * @param workbook opened workbook, it's closed after the job returned
+         * @return result of the workbook
+         * @throws Exception if processing fails
+         */
+        T process(Workbook workbook) throws Exception;
+    }
+
+    private final ExcelConnectionPool pool;
+    private final Job<T> job;
+    private int parallelism;
+    private long timeoutNanos = 0;
+    private int maxRetries = 2;
+    private boolean ordered = true;
+
+    /**
+     * @param pool pool of excel instances, one is leased per workbook
+     * @param job job processing one workbook
+     */
+    public WorkbookBatch(ExcelConnectionPool pool, Job<T> job) {
+        this.pool = pool;
+        this.job = job;
+        this.parallelism = pool.getMaxSize();
+    }
+
+    /**
+     * Sets the number of workbooks processed at the same time. Default is the maximum size of the pool.
+     * @return this
+     */
+    public WorkbookBatch<T> setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive, but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the time after which processing a workbook is given up. Default is 0, i.e. no timeout.
+     * COM calls can't be interrupted, so the excel instance stays busy until the call returns and is discarded then.
+     * Timed out workbooks are not retried.
+     * @return this
+     */
+    public WorkbookBatch<T> setTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative, but was " + timeout);
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Sets how often a workbook is retried on another instance if its excel instance failed. Default is 2.
+     * @return this
+     */
+    public WorkbookBatch<T> setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative, but was " + maxRetries);
+        }
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Sets whether results are passed to the consumer in the order of the file set. Default is true.
+     * Otherwise they are passed as soon as they are available.
+     * @return this
+     */
+    public WorkbookBatch<T> setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Processes all files and waits until they are done
+     * @param files workbooks to be processed
+     * @return results in the order of the files and statistics
+     * @throws ExcelException if interrupted while waiting
+     */
+    public BatchReport<T> run(Collection<File> files) throws ExcelException {
+        return this.run(files, null);
+    }
+
+    /**
+     * Processes all files and waits until they are done
+     * @param files workbooks to be processed
+     * @param consumer receives each result, in the order of the files if ordered is set. It's never called concurrently.
+     * @return results in the order of the files and statistics
+     * @throws ExcelException if interrupted while waiting
+     */
+    public BatchReport<T> run(Collection<File> files, Consumer<BatchResult<T>> consumer) throws ExcelException {
+        List<File> fileList = new ArrayList<>(files);
+        Delivery delivery = new Delivery(fileList.size(), consumer);
+        AtomicInteger nextFile = new AtomicInteger();
+        int workerCount = Math.max(1, Math.min(parallelism, fileList.size()));
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, daemonThreads("excelcom-batch"));
+        // jobs with a timeout run on their own thread, so the worker can give up waiting
+        ExecutorService attempts = timeoutNanos > 0 ? Executors.newCachedThreadPool(daemonThreads("excelcom-batch-job")) : null;
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            tasks.add(() -> {
+                for (int index = nextFile.getAndIncrement(); index < fileList.size(); index = nextFile.getAndIncrement()) {
+                    delivery.deliver(process(fileList.get(index), index, attempts));
+                }
+                return null;
+            });
+        }
+
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> future : workers.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelException("Interrupted while processing workbooks");
+        } catch (ExecutionException e) {
+            // thrown by the consumer
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+            if (attempts != null) {
+                attempts.shutdown();
+            }
+        }
+        return new BatchReport<>(Arrays.asList(delivery.results), System.nanoTime() - start);
+    }
+
+    /**
+     * Processes one file, retrying it if the excel instance failed
+     */
+    private BatchResult<T> process(File file, int index, ExecutorService attempts) {
+        long start = System.nanoTime();
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            try {
+                T value = attempt(file, attempts);
+                return new BatchResult<>(file, index, value, null, attempt, System.nanoTime() - start);
+            } catch (InstanceFailure e) {
+                if (attempt > maxRetries) {
+                    return new BatchResult<>(file, index, null, e.getCause(), attempt, System.nanoTime() - start);
+                }
+            } catch (Throwable e) {
+                return new BatchResult<>(file, index, null, e, attempt, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private T attempt(File file, ExecutorService attempts) throws Exception {
+        ExcelConnectionPool.Lease lease;
+        try {
+            lease = pool.lease();
+        } catch (COMException e) {
+            throw new InstanceFailure(e);
+        }
+        if (attempts == null) {
+            return runJob(lease, file);
+        }
+
+        Future<T> future = attempts.submit(() -> runJob(lease, file));
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // the instance is discarded when the job returns
+            lease.invalidate();
+            future.cancel(true);
+            throw new TimeoutException("Processing " + file + " timed out");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private T runJob(ExcelConnectionPool.Lease lease, File file) throws Exception {
+        ExcelConnection connection = lease.getConnection();
+        try {
+            Workbook workbook = connection.openWorkbook(file);
+            try {
+                return job.process(workbook);
+            } finally {
+                try {
+                    workbook.close(false);
+                } catch (COMException e) {
+                    // the instance is checked below if the job failed, otherwise on its next lease
+                }
+            }
+        } catch (COMException e) {
+            if (!isAlive(connection)) {
+                lease.invalidate();
+                throw new InstanceFailure(e);
+            }
+            throw e;
+        } finally {
+            lease.close();
+        }
+    }
+
+    private static boolean isAlive(ExcelConnection connection) {
+        try {
+            connection.getVersion();
+            return true;
+        } catch (COMException e) {
+            return false;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Failure of an excel instance, the workbook is retried on another one
+     */
+    private static class InstanceFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        InstanceFailure(COMException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Collects the results and passes them to the consumer
+     */
+    private class Delivery {
+        private final BatchResult<T>[] results;
+        private final Consumer<BatchResult<T>> consumer;
+        // index of the next result passed to the consumer in ordered mode
+        private int nextIndex = 0;
+
+        @SuppressWarnings("unchecked")
+        Delivery(int size, Consumer<BatchResult<T>> consumer) {
+            this.results = (BatchResult<T>[]) new BatchResult<?>[size];
+            this.consumer = consumer;
+        }
+
+        synchronized void deliver(BatchResult<T> result) {
+            results[result.getIndex()] = result;
+            if (consumer == null) {
+                return;
+            }
+            if (!ordered) {
+                consumer.accept(result);
+                return;
+            }
+            while (nextIndex < results.length && results[nextIndex] != null) {
+                consumer.accept(results[nextIndex++]);
+            }
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package excelcom.api;
 
 import com.sun.jna.platform.win32.COM.COMException;
-import com.sun.jna.platform.win32.COM.COMLateBindingObject;
-import com.sun.jna.platform.win32.COM.IDispatch;
+import excelcom.dispatch.Dispatch;
+
+import java.io.File;
 
 /**
  * Represents a List of Workbooks as COM object
  * Only for internal use
  */
-class Workbooks extends COMLateBindingObject {
-    Workbooks(IDispatch iDispatch) throws COMException {
-        super(iDispatch);
+class Workbooks {
+    private final Dispatch dispatch;
+    private final HandleRegistry registry;
+
+    Workbooks(Dispatch dispatch, HandleRegistry registry) throws COMException {
+        this.dispatch = dispatch;
+        this.registry = registry;
     }
 
     /**
@@ -19,6 +24,26 @@ class Workbooks extends COMLateBindingObject {
      * @throws ExcelException
      */
     Workbook addWorkbook() throws ExcelException {
-        return new Workbook(this.getAutomationProperty("Add"));
+        return new Workbook((Dispatch) this.dispatch.get("Add"), registry);
+    }
+
+    /**
+     * gets an open workbook
+     * @param name name of the workbook
+     * @return Workbook
+     * @throws COMException if there is no such workbook
+     */
+    Workbook getWorkbook(String name) throws COMException {
+        return new Workbook((Dispatch) this.dispatch.get("Item", name), registry);
+    }
+
+    /**
+     * opens a workbook, it becomes the active workbook
+     * @param file file to open
+     * @return opened Workbook
+     * @throws COMException
+     */
+    Workbook openWorkbook(File file) throws COMException {
+        return new Workbook((Dispatch) this.dispatch.call("Open", file.getAbsolutePath()), registry);
     }
 }
@@ -1,17 +1,153 @@
 package excelcom.api;
 
-import com.sun.jna.platform.win32.*;
 import com.sun.jna.platform.win32.COM.COMException;
-import com.sun.jna.platform.win32.COM.COMLateBindingObject;
 import com.sun.jna.platform.win32.COM.IDispatch;
-import excelcom.util.Util;
+import excelcom.dispatch.CallTracer;
+import excelcom.dispatch.CellMatrix;
+import excelcom.dispatch.ComDispatch;
+import excelcom.dispatch.ComScope;
+import excelcom.dispatch.Dispatch;
+import excelcom.dispatch.TypedBlock;
+import excelcom.util.AddressParser;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * Represents a worksheet
  */
-public class Worksheet extends COMLateBindingObject {
+public class Worksheet {
+    private final Dispatch dispatch;
+    // workbook which caches this worksheet by name, null if it's not cached
+    private final Workbook workbook;
+    // snapshots and indexes which are notified about writes, they are not kept alive by the worksheet
+    private final List<WeakReference<WriteListener>> listeners = new ArrayList<>();
+
     public Worksheet(IDispatch iDispatch) {
-        super(iDispatch);
+        this(new ComDispatch(iDispatch), null);
+    }
+
+    Worksheet(Dispatch dispatch, Workbook workbook) {
+        this.dispatch = dispatch;
+        this.workbook = workbook;
+    }
+
+    /**
+     * Removes the worksheet from the scopes of the current thread, it's owned by the workbook
+     */
+    void keep() {
+        ComScope.keep(this.dispatch);
+    }
+
+    void release() {
+        this.dispatch.release();
+    }
+
+    /**
+     * Gets a range of this worksheet
+     * @param range address of the range or "UsedRange"
+     */
+    private Range getRange(String range) {
+        return range.equals("UsedRange") ?
+                new Range((Dispatch) this.dispatch.get("UsedRange")) :
+                new Range((Dispatch) this.dispatch.get("Range", range));
+    }
+
+    /**
+     * Gets the bounds of UsedRange from its address, without reading the cells. UsedRange also contains formatted
+     * cells and cells which had content before, see {@link #getUsedBounds(boolean)} for the cells with content.
+     * @return bounds of UsedRange, A1 for an empty worksheet
+     * @throws ExcelException if the address can't be read
+     */
+    public RangeRef getUsedBounds() throws ExcelException {
+        try (ComScope scope = ComScope.open()) {
+            return RangeRef.parse(getRange("UsedRange").getAddress());
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to get address of UsedRange");
+        }
+    }
+
+    /**
+     * Gets the bounds of UsedRange, without reading the cells
+     * @param exact if true, the bounds are shrunk to the cells with content (values or formulas). The first and last
+     *              row and column are searched with Find in both directions, which takes 4 searches.
+     * @return bounds, null if exact and the worksheet has no content
+     * @throws ExcelException if the address can't be read or searching fails
+     */
+    public RangeRef getUsedBounds(boolean exact) throws ExcelException {
+        RangeRef used = getUsedBounds();
+        if (!exact) {
+            return used;
+        }
+        try (ComScope scope = ComScope.open()) {
+            Range range = getRange(used.getAddress());
+            Range first = getRange(used.getFirstCell().getAddress());
+            // searching forward after the last cell wraps around to the first cell
+            Range last = getRange(CellRef.of(used.getLastRow(), used.getLastColumn()).getAddress());
+            FindResult lastByRows = findAnyCell(range, first, VbaConstant.XL_BY_ROWS, VbaConstant.XL_PREVIOUS);
+            if (lastByRows == null) {
+                return null;
+            }
+            FindResult lastByColumns = findAnyCell(range, first, VbaConstant.XL_BY_COLUMNS, VbaConstant.XL_PREVIOUS);
+            FindResult firstByRows = findAnyCell(range, last, VbaConstant.XL_BY_ROWS, VbaConstant.XL_NEXT);
+            FindResult firstByColumns = findAnyCell(range, last, VbaConstant.XL_BY_COLUMNS, VbaConstant.XL_NEXT);
+            return RangeRef.of(firstByRows.getRow(), firstByColumns.getColumn(), lastByRows.getRow(), lastByColumns.getColumn());
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to search the cells with content in UsedRange");
+        }
+    }
+
+    /**
+     * Searches for the next cell with content
+     * @return cell or null if the range is empty
+     */
+    private static FindResult findAnyCell(Range range, Range after, VbaConstant searchOrder, VbaConstant searchDirection) {
+        return range.find(new Object[] {
+                "*",
+                after.dispatch,
+                VbaConstant.XL_FORMULAS.getIndex(),
+                VbaConstant.XL_PART.getIndex(),
+                searchOrder.getIndex(),
+                searchDirection.getIndex(),
+                false,
+                false,
+        });
+    }
+
+    /**
+     * Notifies snapshots and indexes about a write
+     * @param range written range
+     */
+    private void invalidate(String range) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        RangeRef written;
+        try {
+            written = RangeRef.parse(range);
+        } catch (IllegalArgumentException e) {
+            // e.g. UsedRange, the written cells are unknown
+            written = null;
+        }
+        invalidate(written);
+    }
+
+    private void invalidate(RangeRef range) {
+        for (Iterator<WeakReference<WriteListener>> it = listeners.iterator(); it.hasNext(); ) {
+            WriteListener listener = it.next().get();
+            if (listener == null) {
+                it.remove();
+            } else {
+                listener.invalidate(range);
+            }
+        }
     }
 
     /**
@@ -20,10 +156,13 @@ public class Worksheet extends COMLateBindingObject {
      */
     public void setName(String name) throws ExcelException {
         try {
-            this.setProperty("Name", name);
+            this.dispatch.put("Name", name);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set name of worksheet to " + name);
         }
+        if (workbook != null) {
+            workbook.renamed(this, name);
+        }
     }
 
     /**
@@ -32,7 +171,7 @@ public class Worksheet extends COMLateBindingObject {
      */
     public String getName() throws ExcelException {
         try {
-            return this.getStringProperty("Name");
+            return (String) this.dispatch.get("Name");
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get name of worksheet");
         }
@@ -44,11 +183,16 @@ public class Worksheet extends COMLateBindingObject {
      * @throws ExcelException
      */
     public boolean delete() throws ExcelException {
+        boolean deleted;
         try {
-            return this.invoke("Delete").booleanValue();
+            deleted = Boolean.TRUE.equals(this.dispatch.call("Delete"));
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to delete worksheet");
         }
+        if (deleted && workbook != null) {
+            workbook.deleted(this);
+        }
+        return deleted;
     }
 
     /**
@@ -76,60 +220,151 @@ public class Worksheet extends COMLateBindingObject {
     public FindResult find(FindOptions options) throws ExcelException, IllegalArgumentException {
         // parse range
         String rangeRaw = options.getRange();
-        Range range = rangeRaw.equals("UsedRange") ?
-                new Range(this.getAutomationProperty("UsedRange", this)) :
-                new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(rangeRaw)));
+        Range range = getRange(rangeRaw);
 
         // check that After is only one cell and in range
         String afterRaw = options.getAfter();
         if(afterRaw == null) {
-            afterRaw = options.setAfter(Util.getColumnName(range.getColumn()) + range.getRow()).getAfter();
+            afterRaw = options.setAfter(firstCell(rangeRaw, range)).getAfter();
         }
-        int[] afterBounds = Util.getRangeSize(afterRaw);
-        if(afterBounds[0] != 1 || afterBounds[1] != 1) {
+        if(AddressParser.isMultipleCells(afterRaw)) {
             throw new IllegalArgumentException("Option After must be one cell. Provided range for After is " + afterRaw);
         }
-        Range afterRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(afterRaw)));
+        Range afterRange = getRange(afterRaw);
 
         // create array from options
-        Variant.VARIANT[] optionsArray = new Variant.VARIANT[] {
-                new Variant.VARIANT(options.getValue()),
-                afterRange.toVariant(),
-                new Variant.VARIANT(options.getLookIn().getIndex()),
-                new Variant.VARIANT(options.getLookAt().getIndex()),
-                new Variant.VARIANT(options.getSearchOrder().getIndex()),
-                new Variant.VARIANT(options.getSearchDirection().getIndex()),
-                new Variant.VARIANT(options.getMatchCase()),
-                new Variant.VARIANT(options.getMatchByte()),
+        Object[] optionsArray = new Object[] {
+                options.getValue(),
+                afterRange.dispatch,
+                options.getLookIn().getIndex(),
+                options.getLookAt().getIndex(),
+                options.getSearchOrder().getIndex(),
+                options.getSearchDirection().getIndex(),
+                options.getMatchCase(),
+                options.getMatchByte(),
         };
 
+        FindResult result = null;
         try {
-            return range.find(optionsArray);
+            result = range.find(optionsArray);
+            return result;
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to find " + options.getValue() + " in range " + rangeRaw);
+        } finally {
+            // the result keeps the searched range for FindNext, After is not needed anymore
+            afterRange.dispatch.release();
+            if (result == null) {
+                range.dispatch.release();
+            }
         }
     }
 
+    /**
+     * Searches for all occurrences of a value in UsedRange
+     * @see #findAll(FindOptions)
+     */
+    public List<CellRef> findAll(String value) throws ExcelException {
+        return this.findAll(new FindOptions().setValue(value));
+    }
+
+    /**
+     * Searches for all occurrences of a value. Unlike {@link #find(FindOptions)} followed by {@link FindResult#next()},
+     * the values or formulas of the range are read with one call and searched locally. The options are evaluated
+     * like excel does, including the wildcards *, ? and ~. With XL_VALUES, numbers are matched without their
+     * number format and date cells are not matched at all, as their text depends on the number format.
+     * XL_NOTES is searched with Find and FindNext.
+     * @param options Options that should be used for searching
+     * @return matching cells in the order FindNext would return them, empty if there is no match
+     * @throws ExcelException if reading fails
+     * @throws IllegalArgumentException if the option After is not one cell
+     */
+    public List<CellRef> findAll(FindOptions options) throws ExcelException, IllegalArgumentException {
+        try (CallTracer.Span span = CallTracer.getInstance().span("Worksheet.findAll", options.getValue())) {
+            return searchAll(options);
+        }
+    }
+
+    private List<CellRef> searchAll(FindOptions options) throws ExcelException, IllegalArgumentException {
+        String rangeRaw = options.getRange();
+        if (options.getLookIn() == VbaConstant.XL_NOTES) {
+            return findAllRemote(options);
+        }
+        RangeRef range = rangeRaw.equals("UsedRange") ? getUsedBounds() : RangeRef.parse(rangeRaw);
+        CellRef after = options.getAfter() == null ? range.getFirstCell() : CellRef.parse(options.getAfter());
+
+        CellMatrix content;
+        try (ComScope scope = ComScope.open()) {
+            if (options.getLookIn() == VbaConstant.XL_VALUES) {
+                content = getCellMatrix(range);
+            } else {
+                Object formulas = getRange(range.getAddress()).getFormula();
+                content = formulas instanceof CellMatrix ? (CellMatrix) formulas : CellMatrix.wrap(new Object[][]{{formulas}});
+            }
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to find " + options.getValue() + " in range " + rangeRaw);
+        }
+        try {
+            return CellSearch.findAll(content, range, after, options);
+        } finally {
+            content.close();
+        }
+    }
+
+    /**
+     * Gets the first cell of a range from its address, which doesn't call excel unless it's UsedRange
+     */
+    private static CellRef firstCell(String rangeRaw, Range range) {
+        try {
+            return RangeRef.parse(rangeRaw.equals("UsedRange") ? range.getAddress() : rangeRaw).getFirstCell();
+        } catch (IllegalArgumentException e) {
+            // e.g. multiple areas
+            return CellRef.of(range.getRow() - 1, range.getColumn() - 1);
+        }
+    }
+
+    /**
+     * Collects all results of Find and FindNext
+     */
+    private List<CellRef> findAllRemote(FindOptions options) throws ExcelException {
+        List<CellRef> matches = new ArrayList<>();
+        try (ComScope scope = ComScope.open()) {
+            FindResult first = this.find(options);
+            for (FindResult result = first; result != null; ) {
+                matches.add(CellRef.of(result.getRow(), result.getColumn()));
+                result = result.next();
+                if (result.getRow() == first.getRow() && result.getColumn() == first.getColumn()) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
     /**
      * Gets content from one cell as an object
-     * @param range one cell range, e.g. "A5"
+     * @param range one cell range, e.g. "A5", or a defined name
      * @return cell value
      * @throws ExcelException
      * @throws IllegalArgumentException if multiple cell range was given
      */
     public Object getUnaryContent(String range) throws ExcelException, IllegalArgumentException {
-        int[] rangeBounds = Util.getRangeSize(range);
-        if (rangeBounds[0] != 1 || rangeBounds[1] != 1) {
+        if (AddressParser.isMultipleCells(range)) {
             throw new IllegalArgumentException("Failed to get content from one cell. Multiple cell range was given: " + range);
         }
-        try {
-            Object c = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)))
-                    .getValue().getValue();
-            if(c instanceof WTypes.BSTR) {
-                return c.toString();
-            } else {
-                return c;
-            }
+        return readUnaryContent(range);
+    }
+
+    /**
+     * @see #getUnaryContent(String)
+     * @param cell reference to the cell
+     */
+    public Object getUnaryContent(CellRef cell) throws ExcelException {
+        return readUnaryContent(cell.getAddress());
+    }
+
+    private Object readUnaryContent(String range) throws ExcelException {
+        try (ComScope scope = ComScope.open()) {
+            return getRange(range).getValue();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get unary content in range '" + range + "'");
         }
@@ -144,7 +379,7 @@ public class Worksheet extends COMLateBindingObject {
         if(indices.length != 2) {
             throw new IllegalArgumentException("Row or column index not specified");
         }
-        return getUnaryContent(Util.getColumnName(indices[1] + 1) + Integer.toString(indices[0] + 1));
+        return getUnaryContent(CellRef.of(indices[0], indices[1]));
     }
 
     /**
@@ -153,24 +388,35 @@ public class Worksheet extends COMLateBindingObject {
      * @param column column index, 0-based
      */
     public Object getUnaryContent(int row, int column) throws ExcelException, IllegalArgumentException {
-        return getUnaryContent(new int[]{row, column});
+        return getUnaryContent(CellRef.of(row, column));
     }
 
     /**
      * Sets content of one cell
-     * @param range one cell range, e.g. "A5"
+     * @param range one cell range, e.g. "A5", or a defined name
      * @param content
      * @throws IllegalArgumentException if multiple cell range was given
      * @throws ExcelException
      */
     public void setUnaryContent(String range, Object content) throws ExcelException, IllegalArgumentException {
-        int[] rangeBounds = Util.getRangeSize(range);
-        if (rangeBounds[0] != 1 || rangeBounds[1] != 1) {
+        if (AddressParser.isMultipleCells(range)) {
             throw new IllegalArgumentException("Failed to set content of one cell to " + content + ". Multiple cell range was given: " + range);
         }
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
-            this.setProperty("Value", pRange, Util.createVariantFromObject(content));
+        writeUnaryContent(range, content);
+    }
+
+    /**
+     * @see #setUnaryContent(String, Object)
+     * @param cell reference to the cell
+     */
+    public void setUnaryContent(CellRef cell, Object content) throws ExcelException {
+        writeUnaryContent(cell.getAddress(), content);
+    }
+
+    private void writeUnaryContent(String range, Object content) throws ExcelException {
+        invalidate(range);
+        try (ComScope scope = ComScope.open()) {
+            getRange(range).setValue(content);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set unary content in range '" + range + "'");
         }
@@ -185,7 +431,7 @@ public class Worksheet extends COMLateBindingObject {
         if(indices.length != 2) {
             throw new IllegalArgumentException("Row or column index not specified");
         }
-        setUnaryContent(Util.getColumnName(indices[1] + 1) + Integer.toString(indices[0] + 1), content);
+        setUnaryContent(CellRef.of(indices[0], indices[1]), content);
     }
 
     /**
@@ -194,11 +440,11 @@ public class Worksheet extends COMLateBindingObject {
      * @param column index of column, 0-based
      */
     public void setUnaryContent(int row, int column, Object content) throws ExcelException, IllegalArgumentException {
-        setUnaryContent(new int[]{row, column}, content);
+        setUnaryContent(CellRef.of(row, column), content);
     }
 
     /**
-     * Gets the whole used content of the worksheet (using UsedRange)
+     * Gets the whole used content of the worksheet (using UsedRange). Use {@link #getRowCursor(int)} for large worksheets.
      * @return 2-dimensional Array of Object with content
      * @throws ExcelException
      */
@@ -217,17 +463,17 @@ public class Worksheet extends COMLateBindingObject {
      * @throws ExcelException
      */
     public Object[][] getContent(String range) throws ExcelException {
-        try {
-            Range pRange = range.equals("UsedRange") ?
-                    new Range(this.getAutomationProperty("UsedRange", this)) :
-                    new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
-            Object contentRaw = pRange.getValue().getValue();
-
-            if (contentRaw instanceof OaIdl.SAFEARRAY) {
-                // TODO Workaround for bug in toPrimitiveArray (0-based java vs 1-based excel) see github issue #785 (https://github.com/java-native-access/jna/issues/785)
-                ((OaIdl.SAFEARRAY) contentRaw).rgsabound[0].lLbound = new WinDef.LONG(0);
-                ((OaIdl.SAFEARRAY) contentRaw).rgsabound[1].lLbound = new WinDef.LONG(0);
-                return Util.transpose((Object[][]) OaIdlUtil.toPrimitiveArray((OaIdl.SAFEARRAY) contentRaw, true));
+        try (CallTracer.Span span = CallTracer.getInstance().span("Worksheet.getContent", range);
+             ComScope scope = ComScope.open()) {
+            Object contentRaw = getRange(range).getValue();
+
+            if (contentRaw instanceof CellMatrix) {
+                CellMatrix matrix = (CellMatrix) contentRaw;
+                try {
+                    return matrix.toArray();
+                } finally {
+                    matrix.close();
+                }
             } else {
                 return new Object[][]{{contentRaw}};
             }
@@ -236,6 +482,226 @@ public class Worksheet extends COMLateBindingObject {
         }
     }
 
+    /**
+     * Gets the content in range as a view which decodes cells when they are accessed. Much less memory is needed
+     * than for {@link #getContent(String)}, the matrix must be closed after use though.
+     * @param range Range with content
+     * @return matrix of the content. If an unary range was given, the element is at [0, 0].
+     * @throws ExcelException
+     */
+    public CellMatrix getCellMatrix(String range) throws ExcelException {
+        try (CallTracer.Span span = CallTracer.getInstance().span("Worksheet.getCellMatrix", range);
+             ComScope scope = ComScope.open()) {
+            Object contentRaw = getRange(range).getValue();
+            return contentRaw instanceof CellMatrix ? (CellMatrix) contentRaw : CellMatrix.wrap(new Object[][]{{contentRaw}});
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to get content in range '" + range + "'");
+        }
+    }
+
+    /**
+     * @see #getCellMatrix(String)
+     * @param range reference to the range
+     */
+    public CellMatrix getCellMatrix(RangeRef range) throws ExcelException {
+        return this.getCellMatrix(range.getAddress());
+    }
+
+    /**
+     * Opens a cursor over the rows of UsedRange. The rows are read in blocks and the next block is read by a
+     * background thread while the current one is processed, so memory stays constant for large worksheets.
+     * @param blockSize number of rows per read
+     * @return cursor which must be closed
+     * @throws IllegalArgumentException if blockSize is not positive
+     */
+    public RowCursor getRowCursor(int blockSize) throws ExcelException, IllegalArgumentException {
+        return this.getRowCursor(getUsedBounds(), blockSize, true);
+    }
+
+    /**
+     * @see #getRowCursor(int)
+     * @param range range to be read
+     * @param prefetch if true, the next block is read by a background thread. COM must be initialized as
+     *                 multithreaded, which {@link ExcelConnection#connect()} does.
+     */
+    public RowCursor getRowCursor(RangeRef range, int blockSize, boolean prefetch) throws IllegalArgumentException {
+        return new RowCursor(this, range, blockSize, prefetch);
+    }
+
+    /**
+     * Reads the numbers of a one column range without boxing them
+     * @param range one column range, e.g. "B2:B1000"
+     * @return numbers from top to bottom, NaN for cells which are no number
+     * @throws IllegalArgumentException if range has more than one column
+     */
+    public double[] readDoubleColumn(String range) throws ExcelException, IllegalArgumentException {
+        return this.readDoubleColumn(range, null);
+    }
+
+    /**
+     * @see #readDoubleColumn(String)
+     * @param missing if not null, receives the indices of cells which are empty, errors or no number
+     */
+    public double[] readDoubleColumn(String range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        CellMatrix matrix = readColumn(range);
+        try {
+            double[] values = new double[matrix.getRowCount()];
+            for (int row = 0; row < values.length; row++) {
+                values[row] = matrix.getDouble(row, 0);
+                if (missing != null && matrix.getType(row, 0) != CellMatrix.Type.NUMBER) {
+                    missing.set(row);
+                }
+            }
+            return values;
+        } finally {
+            matrix.close();
+        }
+    }
+
+    /**
+     * @see #readDoubleColumn(String, BitSet)
+     * @param range reference to a one column range
+     */
+    public double[] readDoubleColumn(RangeRef range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        return this.readDoubleColumn(range.getAddress(), missing);
+    }
+
+    /**
+     * Reads the numbers of a one column range without boxing them. Fractional parts are cut off.
+     * @param range one column range, e.g. "B2:B1000"
+     * @return numbers from top to bottom, 0 for cells which are no number
+     * @throws IllegalArgumentException if range has more than one column
+     */
+    public long[] readLongColumn(String range) throws ExcelException, IllegalArgumentException {
+        return this.readLongColumn(range, null);
+    }
+
+    /**
+     * @see #readLongColumn(String)
+     * @param missing if not null, receives the indices of cells which are empty, errors or no number
+     */
+    public long[] readLongColumn(String range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        CellMatrix matrix = readColumn(range);
+        try {
+            long[] values = new long[matrix.getRowCount()];
+            for (int row = 0; row < values.length; row++) {
+                if (matrix.getType(row, 0) == CellMatrix.Type.NUMBER) {
+                    values[row] = (long) matrix.getDouble(row, 0);
+                } else if (missing != null) {
+                    missing.set(row);
+                }
+            }
+            return values;
+        } finally {
+            matrix.close();
+        }
+    }
+
+    /**
+     * @see #readLongColumn(String, BitSet)
+     * @param range reference to a one column range
+     */
+    public long[] readLongColumn(RangeRef range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        return this.readLongColumn(range.getAddress(), missing);
+    }
+
+    /**
+     * Reads the strings of a one column range
+     * @param range one column range, e.g. "B2:B1000"
+     * @return strings from top to bottom, null for cells which are no string
+     * @throws IllegalArgumentException if range has more than one column
+     */
+    public String[] readStringColumn(String range) throws ExcelException, IllegalArgumentException {
+        return this.readStringColumn(range, null);
+    }
+
+    /**
+     * @see #readStringColumn(String)
+     * @param missing if not null, receives the indices of cells which are empty, errors or no string
+     */
+    public String[] readStringColumn(String range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        CellMatrix matrix = readColumn(range);
+        try {
+            String[] values = new String[matrix.getRowCount()];
+            for (int row = 0; row < values.length; row++) {
+                values[row] = matrix.getString(row, 0);
+                if (missing != null && values[row] == null) {
+                    missing.set(row);
+                }
+            }
+            return values;
+        } finally {
+            matrix.close();
+        }
+    }
+
+    /**
+     * @see #readStringColumn(String, BitSet)
+     * @param range reference to a one column range
+     */
+    public String[] readStringColumn(RangeRef range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        return this.readStringColumn(range.getAddress(), missing);
+    }
+
+    /**
+     * Reads the dates of a one column range as milliseconds since 1970-01-01 UTC, without creating Date objects.
+     * Excel dates have no time zone, they are read in the default time zone like the Dates of getContent.
+     * @param range one column range, e.g. "B2:B1000"
+     * @return dates from top to bottom, 0 for cells which are no date
+     * @throws IllegalArgumentException if range has more than one column
+     */
+    public long[] readDateColumnAsEpochMillis(String range) throws ExcelException, IllegalArgumentException {
+        return this.readDateColumnAsEpochMillis(range, null);
+    }
+
+    /**
+     * @see #readDateColumnAsEpochMillis(String)
+     * @param missing if not null, receives the indices of cells which are empty, errors or no date
+     */
+    public long[] readDateColumnAsEpochMillis(String range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        CellMatrix matrix = readColumn(range);
+        try {
+            long[] values = new long[matrix.getRowCount()];
+            for (int row = 0; row < values.length; row++) {
+                long millis = matrix.getEpochMillis(row, 0);
+                if (millis != Long.MIN_VALUE) {
+                    values[row] = millis;
+                } else if (missing != null) {
+                    missing.set(row);
+                }
+            }
+            return values;
+        } finally {
+            matrix.close();
+        }
+    }
+
+    /**
+     * @see #readDateColumnAsEpochMillis(String, BitSet)
+     * @param range reference to a one column range
+     */
+    public long[] readDateColumnAsEpochMillis(RangeRef range, BitSet missing) throws ExcelException, IllegalArgumentException {
+        return this.readDateColumnAsEpochMillis(range.getAddress(), missing);
+    }
+
+    /**
+     * Gets the content of a one column range
+     * @throws IllegalArgumentException if range has more than one column
+     */
+    private CellMatrix readColumn(String range) throws ExcelException {
+        // UsedRange and defined names are checked after reading
+        long size = AddressParser.sizeOf(range);
+        if (size != AddressParser.UNKNOWN_SIZE && AddressParser.columns(size) != 1) {
+            throw new IllegalArgumentException("Range must be one column, but " + range + " was given");
+        }
+        CellMatrix matrix = getCellMatrix(range);
+        if (matrix.getColumnCount() != 1) {
+            matrix.close();
+            throw new IllegalArgumentException("Range must be one column, but " + range + " was given");
+        }
+        return matrix;
+    }
+
     /**
      * @see #getContent(String)
      * @param from lower bound of range. 2-sized array of the form [row, column], 0-based
@@ -246,8 +712,7 @@ public class Worksheet extends COMLateBindingObject {
         if(from.length != 2 || to.length != 2) {
             throw new IllegalArgumentException("Row or column index not specified");
         }
-        return this.getContent(Util.getColumnName(from[1] + 1) + Integer.toString(from[0] + 1) + ":"
-            + Util.getColumnName(to[1] + 1) + Integer.toString(to[0] + 1));
+        return this.getContent(RangeRef.of(from[0], from[1], to[0], to[1]));
     }
 
     /**
@@ -258,7 +723,15 @@ public class Worksheet extends COMLateBindingObject {
      * @param toColumn upper bound column index, 0-based
      */
     public Object[][] getContent(int fromRow, int fromColumn, int toRow, int toColumn) throws IllegalArgumentException, ExcelException {
-        return this.getContent(new int[]{fromRow, fromColumn}, new int[]{toRow, toColumn});
+        return this.getContent(RangeRef.of(fromRow, fromColumn, toRow, toColumn));
+    }
+
+    /**
+     * @see #getContent(String)
+     * @param range reference to the range
+     */
+    public Object[][] getContent(RangeRef range) throws ExcelException {
+        return this.getContent(range.getAddress());
     }
 
     /**
@@ -267,28 +740,11 @@ public class Worksheet extends COMLateBindingObject {
      * @param content content to be set
      */
     public void setContent(String range, Object[][] content) throws ExcelException {
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
-            int rowCount = content.length;
-            int columnCount = content[0].length;
-            // get maximum column count
-            for(int i = 1; i < rowCount; i++) {
-                if(content[i].length > columnCount) {
-                    columnCount = content[i].length;
-                }
-            }
-
-            // transpose content: in java it's (row,column) but in excel it's (column,row)
-            OaIdl.SAFEARRAY sa = OaIdl.SAFEARRAY.createSafeArray(columnCount, rowCount);
-            for (int i = 0; i < rowCount; i++) {
-                for (int j = 0; j < content[i].length; j++) {
-                    Object cell = content[i][j];
-                    sa.putElement(Util.createVariantFromObject(cell), j, i);
-                }
-            }
-
-            // set content
-            this.setProperty("Value", pRange, new Variant.VARIANT(sa));
+        invalidate(range);
+        try (CallTracer.Span span = CallTracer.getInstance().span("Worksheet.setContent", range);
+             ComScope scope = ComScope.open()) {
+            // rows may have different lengths, the dispatch backend fills missing cells with empty values
+            getRange(range).setValue(content);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set content in range '" + range + "'");
         }
@@ -304,8 +760,7 @@ public class Worksheet extends COMLateBindingObject {
         if(from.length != 2 || to.length != 2) {
             throw new IllegalArgumentException("Row or column index not specified");
         }
-        this.setContent(Util.getColumnName(from[1] + 1) + Integer.toString(from[0] + 1) + ":"
-                + Util.getColumnName(to[1] + 1) + Integer.toString(to[0] + 1), content);
+        this.setContent(RangeRef.of(from[0], from[1], to[0], to[1]), content);
     }
 
     /**
@@ -316,21 +771,50 @@ public class Worksheet extends COMLateBindingObject {
      * @param toColumn upper bound column index, 0-based
      */
     public void setContent(int fromRow, int fromColumn, int toRow, int toColumn, Object[][] content) throws IllegalArgumentException, ExcelException {
-        this.setContent(new int[]{fromRow, fromColumn}, new int[]{toRow, toColumn}, content);
+        this.setContent(RangeRef.of(fromRow, fromColumn, toRow, toColumn), content);
     }
 
     /**
-     * Sets the content of a range to one value
-     * @param range range
+     * @see #setContent(String, Object[][])
+     * @param range reference to the range
+     */
+    public void setContent(RangeRef range, Object[][] content) throws ExcelException {
+        this.setContent(range.getAddress(), content);
+    }
+
+    /**
+     * Sets the content of a range to one value. The value is copied into a matrix of the size of the range,
+     * so whole rows and columns like "A:C" or "1:1" are rejected. For defined names, excel fills the cells.
+     * @param range range or defined name
      * @param content value to be set
+     * @throws IllegalArgumentException if the range spans whole rows or columns
      */
-    public void setContent(String range, Object content) throws ExcelException {
+    public void setContent(String range, Object content) throws ExcelException, IllegalArgumentException {
+        long rangeSize = AddressParser.sizeOf(range);
+        if (rangeSize == AddressParser.UNKNOWN_SIZE) {
+            writeUnaryContent(range, content);
+            return;
+        }
+        fillContent(range, AddressParser.rows(rangeSize), AddressParser.columns(rangeSize), content);
+    }
+
+    /**
+     * @see #setContent(String, Object)
+     * @param range reference to the range
+     */
+    public void setContent(RangeRef range, Object content) throws ExcelException, IllegalArgumentException {
+        fillContent(range.getAddress(), range.getRowCount(), range.getColumnCount(), content);
+    }
+
+    private void fillContent(String range, int rowCount, int columnCount, Object content) throws ExcelException {
+        if (rowCount == AddressParser.MAX_ROWS || columnCount == AddressParser.MAX_COLUMNS) {
+            throw new IllegalArgumentException("Failed to set content of range to " + content + ". Whole rows or columns were given: " + range);
+        }
         try {
-            int[] rangeSize = Util.getRangeSize(range);
-            Object[][] temp = new Object[rangeSize[0]][rangeSize[1]];
+            Object[][] temp = new Object[rowCount][columnCount];
             // set content to each cell in range
-            for (int row = 0; row < rangeSize[0]; row++) {
-                for (int column = 0; column < rangeSize[1]; column++) {
+            for (int row = 0; row < rowCount; row++) {
+                for (int column = 0; column < columnCount; column++) {
                     temp[row][column] = content;
                 }
             }
@@ -350,8 +834,7 @@ public class Worksheet extends COMLateBindingObject {
         if(from.length != 2 || to.length != 2) {
             throw new IllegalArgumentException("Row or column index not specified");
         }
-        this.setContent(Util.getColumnName(from[1] + 1) + Integer.toString(from[0] + 1) + ":"
-                + Util.getColumnName(to[1] + 1) + Integer.toString(to[0] + 1), content);
+        this.setContent(RangeRef.of(from[0], from[1], to[0], to[1]), content);
     }
 
     /**
@@ -362,84 +845,476 @@ public class Worksheet extends COMLateBindingObject {
      * @param toColumn upper bound column index, 0-based
      */
     public void setContent(int fromRow, int fromColumn, int toRow, int toColumn, Object content) throws IllegalArgumentException, ExcelException {
-        this.setContent(new int[]{fromRow, fromColumn}, new int[]{toRow, toColumn}, content);
+        this.setContent(RangeRef.of(fromRow, fromColumn, toRow, toColumn), content);
+    }
+
+    /**
+     * Loads the content of UsedRange into memory. Lookups on the snapshot don't call excel, writes through this
+     * worksheet invalidate the written cells of the snapshot.
+     * @return snapshot of UsedRange
+     * @throws ExcelException if loading fails
+     */
+    public WorksheetSnapshot snapshot() throws ExcelException {
+        return register(new WorksheetSnapshot(this, null));
+    }
+
+    /**
+     * @see #snapshot()
+     * @param range range to be loaded, lookups outside of it are passed to the worksheet
+     * @return snapshot of range
+     */
+    public WorksheetSnapshot snapshot(RangeRef range) throws ExcelException {
+        return register(new WorksheetSnapshot(this, range));
+    }
+
+    private <T extends WriteListener> T register(T listener) {
+        listeners.add(new WeakReference<>(listener));
+        return listener;
+    }
+
+    /**
+     * Builds an index which maps the values of a key column to their rows, e.g. to join worksheets by an ID
+     * @see #buildIndex(RangeRef, boolean)
+     * @param keyColumnRange one column range with the keys, e.g. "A2:A100000"
+     */
+    public ColumnIndex buildIndex(String keyColumnRange) throws ExcelException, IllegalArgumentException {
+        return this.buildIndex(RangeRef.parse(keyColumnRange), false);
+    }
+
+    /**
+     * Builds an index which maps the values of a key column to their rows. The column is read once,
+     * writes to it through this worksheet update the index on its next lookup.
+     * @param keyColumn one column range with the keys
+     * @param ignoreCase if true, strings are compared case-insensitively like excel does
+     * @return index of the column
+     * @throws IllegalArgumentException if range has more than one column
+     */
+    public ColumnIndex buildIndex(RangeRef keyColumn, boolean ignoreCase) throws ExcelException, IllegalArgumentException {
+        if (keyColumn.getColumnCount() != 1) {
+            throw new IllegalArgumentException("Key column must be one column, but was " + keyColumn.getAddress());
+        }
+        return register(new ColumnIndex(this, keyColumn, ignoreCase));
+    }
+
+    /**
+     * Opens a buffer for single cell writes. Adjacent cells are merged and written with one call when the buffer
+     * is flushed or closed, which is much faster than calling {@link #setUnaryContent(int, int, Object)} in a loop.
+     * @return buffer which must be closed
+     */
+    public CellWriteBuffer bufferWrites() {
+        return new CellWriteBuffer(this);
+    }
+
+    /**
+     * Opens a batch for color changes. Changes with the same color are applied together with one call per
+     * multiple area address, which is much faster than calling {@link #setFillColor(RangeRef, ExcelColor)} in a loop.
+     * @return batch which must be closed
+     */
+    public FormatBatch formatBatch() {
+        return new FormatBatch(this);
+    }
+
+    /**
+     * Opens a sink which writes appended rows below a start cell in blocks
+     * @param start upper left cell of the first row
+     * @return sink which must be closed
+     */
+    public RowSink getRowSink(CellRef start) {
+        return new RowSink(this, start);
+    }
+
+    /**
+     * Writes numbers into a column, starting at a cell. The values are passed to excel as one typed array without
+     * boxing them, which is much faster than {@link #setContent(String, Object[][])} for large columns.
+     * @param start first cell of the column, e.g. "B2"
+     * @param values values from top to bottom
+     * @throws IllegalArgumentException if start is not one cell or the column exceeds the worksheet
+     */
+    public void setColumn(String start, double[] values) throws ExcelException, IllegalArgumentException {
+        this.setColumn(CellRef.parse(start), values);
+    }
+
+    /**
+     * @see #setColumn(String, double[])
+     * @param start first cell of the column
+     */
+    public void setColumn(CellRef start, double[] values) throws ExcelException, IllegalArgumentException {
+        if (values.length > 0) {
+            writeBlock(columnRange(start, values.length), TypedBlock.ofDoubles(values.length, 1, values));
+        }
+    }
+
+    /**
+     * @see #setColumn(String, double[])
+     * @param values values from top to bottom. Excel stores numbers as doubles, values above 2^53 lose precision.
+     */
+    public void setColumn(String start, long[] values) throws ExcelException, IllegalArgumentException {
+        this.setColumn(CellRef.parse(start), values);
+    }
+
+    /**
+     * @see #setColumn(String, long[])
+     * @param start first cell of the column
+     */
+    public void setColumn(CellRef start, long[] values) throws ExcelException, IllegalArgumentException {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i];
+        }
+        this.setColumn(start, doubles);
+    }
+
+    /**
+     * @see #setColumn(String, double[])
+     */
+    public void setColumn(String start, boolean[] values) throws ExcelException, IllegalArgumentException {
+        this.setColumn(CellRef.parse(start), values);
+    }
+
+    /**
+     * @see #setColumn(String, double[])
+     * @param start first cell of the column
+     */
+    public void setColumn(CellRef start, boolean[] values) throws ExcelException, IllegalArgumentException {
+        if (values.length > 0) {
+            writeBlock(columnRange(start, values.length), TypedBlock.ofBooleans(values.length, 1, values));
+        }
+    }
+
+    /**
+     * @see #setColumn(String, double[])
+     * @param values values from top to bottom, null and empty strings clear the cell
+     */
+    public void setColumn(String start, String[] values) throws ExcelException, IllegalArgumentException {
+        this.setColumn(CellRef.parse(start), values);
+    }
+
+    /**
+     * @see #setColumn(String, String[])
+     * @param start first cell of the column
+     */
+    public void setColumn(CellRef start, String[] values) throws ExcelException, IllegalArgumentException {
+        if (values.length > 0) {
+            writeBlock(columnRange(start, values.length), TypedBlock.ofStrings(values.length, 1, values));
+        }
+    }
+
+    /**
+     * Writes numbers into a range. Like {@link #setColumn(String, double[])} the values are passed as one typed array.
+     * @param range range to be filled
+     * @param values values of the form [row][column], must have exactly the size of the range
+     * @throws IllegalArgumentException if the size of values differs from the range
+     */
+    public void setBlock(RangeRef range, double[][] values) throws ExcelException, IllegalArgumentException {
+        checkBlock(range, values);
+        int rowCount = range.getRowCount(), columnCount = range.getColumnCount();
+        double[] block = new double[rowCount * columnCount];
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                block[column * rowCount + row] = values[row][column];
+            }
+        }
+        writeBlock(range, TypedBlock.ofDoubles(rowCount, columnCount, block));
+    }
+
+    /**
+     * @see #setBlock(RangeRef, double[][])
+     * @param values values of the form [row][column]. Excel stores numbers as doubles, values above 2^53 lose precision.
+     */
+    public void setBlock(RangeRef range, long[][] values) throws ExcelException, IllegalArgumentException {
+        checkBlock(range, values);
+        int rowCount = range.getRowCount(), columnCount = range.getColumnCount();
+        double[] block = new double[rowCount * columnCount];
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                block[column * rowCount + row] = values[row][column];
+            }
+        }
+        writeBlock(range, TypedBlock.ofDoubles(rowCount, columnCount, block));
+    }
+
+    /**
+     * @see #setBlock(RangeRef, double[][])
+     */
+    public void setBlock(RangeRef range, boolean[][] values) throws ExcelException, IllegalArgumentException {
+        checkBlock(range, values);
+        int rowCount = range.getRowCount(), columnCount = range.getColumnCount();
+        boolean[] block = new boolean[rowCount * columnCount];
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                block[column * rowCount + row] = values[row][column];
+            }
+        }
+        writeBlock(range, TypedBlock.ofBooleans(rowCount, columnCount, block));
+    }
+
+    /**
+     * @see #setBlock(RangeRef, double[][])
+     * @param values values of the form [row][column], null and empty strings clear the cell
+     */
+    public void setBlock(RangeRef range, String[][] values) throws ExcelException, IllegalArgumentException {
+        checkBlock(range, values);
+        int rowCount = range.getRowCount(), columnCount = range.getColumnCount();
+        String[] block = new String[rowCount * columnCount];
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                block[column * rowCount + row] = values[row][column];
+            }
+        }
+        writeBlock(range, TypedBlock.ofStrings(rowCount, columnCount, block));
+    }
+
+    /**
+     * Gets the range of a column starting at a cell
+     * @throws IllegalArgumentException if the column exceeds the worksheet
+     */
+    private static RangeRef columnRange(CellRef start, int rowCount) {
+        if (rowCount > AddressParser.MAX_ROWS - start.getRow()) {
+            throw new IllegalArgumentException(rowCount + " values starting at " + start + " exceed the worksheet");
+        }
+        return RangeRef.of(start.getRow(), start.getColumn(), start.getRow() + rowCount - 1, start.getColumn());
+    }
+
+    /**
+     * Checks that a matrix of primitives has exactly the size of a range
+     * @param rows rows of the matrix, e.g. a double[][]
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    private static void checkBlock(RangeRef range, Object[] rows) {
+        if (rows.length != range.getRowCount()) {
+            throw new IllegalArgumentException("Range " + range + " has " + range.getRowCount() + " rows, but " + rows.length + " were given");
+        }
+        for (int i = 0; i < rows.length; i++) {
+            if (Array.getLength(rows[i]) != range.getColumnCount()) {
+                throw new IllegalArgumentException("Range " + range + " has " + range.getColumnCount() + " columns, but row " + i + " has " + Array.getLength(rows[i]));
+            }
+        }
+    }
+
+    private void writeBlock(RangeRef range, TypedBlock block) throws ExcelException {
+        invalidate(range);
+        try (CallTracer.Span span = CallTracer.getInstance().span("Worksheet.setBlock", range);
+             ComScope scope = ComScope.open()) {
+            getRange(range.getAddress()).setValue(block);
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to set content in range '" + range + "'");
+        }
     }
 
     /**
      * Sets the fill (background) color of a range
+     * @param range range, e.g. "A1:B2", or multiple areas, e.g. "A1:B2,D4"
      */
     public void setFillColor(String range, ExcelColor color) throws ExcelException {
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             pRange.setInteriorColor(color);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set fill color in range '" + range + "'");
         }
     }
 
+    /**
+     * @see #setFillColor(String, ExcelColor)
+     * @param range reference to the range
+     */
+    public void setFillColor(RangeRef range, ExcelColor color) throws ExcelException {
+        this.setFillColor(range.getAddress(), color);
+    }
+
     /**
      * Gets the fill color of the range
      * @throws NullPointerException if range has multiple fill colors (or an unexpected error appears)
      */
     public ExcelColor getFillColor(String range) throws ExcelException, NullPointerException {
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             return pRange.getInteriorColor();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get fill color in range '" + range + "'");
         }
     }
 
+    /**
+     * @see #getFillColor(String)
+     * @param range reference to the range
+     */
+    public ExcelColor getFillColor(RangeRef range) throws ExcelException, NullPointerException {
+        return this.getFillColor(range.getAddress());
+    }
+
+    /**
+     * Gets the fill color of every cell in a range. ColorIndex is read for the whole range first, ranges with
+     * different colors are split in halves until each part has one color, so uniform regions need one read.
+     * @param range range with content
+     * @return colors by [row][column] relative to the range
+     * @throws ExcelException if reading fails
+     */
+    public ExcelColor[][] getFillColorMatrix(RangeRef range) throws ExcelException {
+        return getColorMatrix(range, "Interior");
+    }
+
+    /**
+     * @see #getFillColorMatrix(RangeRef)
+     * @param range range, e.g. "A1:C100"
+     */
+    public ExcelColor[][] getFillColorMatrix(String range) throws ExcelException, IllegalArgumentException {
+        return getColorMatrix(RangeRef.parse(range), "Interior");
+    }
+
+    /**
+     * Gets the font color of every cell in a range
+     * @see #getFillColorMatrix(RangeRef)
+     */
+    public ExcelColor[][] getFontColorMatrix(RangeRef range) throws ExcelException {
+        return getColorMatrix(range, "Font");
+    }
+
+    /**
+     * @see #getFontColorMatrix(RangeRef)
+     * @param range range, e.g. "A1:C100"
+     */
+    public ExcelColor[][] getFontColorMatrix(String range) throws ExcelException, IllegalArgumentException {
+        return getColorMatrix(RangeRef.parse(range), "Font");
+    }
+
+    /**
+     * Gets the border color of every cell in a range
+     * @see #getFillColorMatrix(RangeRef)
+     * @return colors by [row][column] relative to the range, null for cells whose borders have different colors
+     */
+    public ExcelColor[][] getBorderColorMatrix(RangeRef range) throws ExcelException {
+        return getColorMatrix(range, "Borders");
+    }
+
+    /**
+     * @see #getBorderColorMatrix(RangeRef)
+     * @param range range, e.g. "A1:C100"
+     */
+    public ExcelColor[][] getBorderColorMatrix(String range) throws ExcelException, IllegalArgumentException {
+        return getColorMatrix(RangeRef.parse(range), "Borders");
+    }
+
+    /**
+     * Reads the colors of a range by bisection
+     * @param pane Interior, Font or Borders
+     */
+    private ExcelColor[][] getColorMatrix(RangeRef range, String pane) throws ExcelException {
+        ExcelColor[][] colors = new ExcelColor[range.getRowCount()][range.getColumnCount()];
+        Deque<RangeRef> parts = new ArrayDeque<>();
+        parts.push(range);
+        try (CallTracer.Span span = CallTracer.getInstance().span("Worksheet.getColorMatrix", range)) {
+            while (!parts.isEmpty()) {
+                RangeRef part = parts.pop();
+                Integer colorIndex;
+                // released per part, a bisection can acquire thousands of ranges
+                try (ComScope scope = ComScope.open()) {
+                    colorIndex = getRange(part.getAddress()).getColorIndexOrNull(pane);
+                }
+                if (colorIndex != null || part.isSingleCell()) {
+                    ExcelColor color = colorIndex == null ? null : ExcelColor.getColor(colorIndex);
+                    for (int row = part.getFirstRow(); row <= part.getLastRow(); row++) {
+                        Arrays.fill(colors[row - range.getFirstRow()], part.getFirstColumn() - range.getFirstColumn(),
+                                part.getLastColumn() - range.getFirstColumn() + 1, color);
+                    }
+                } else if (part.getRowCount() >= part.getColumnCount()) {
+                    int middle = part.getFirstRow() + part.getRowCount() / 2;
+                    parts.push(RangeRef.of(middle, part.getFirstColumn(), part.getLastRow(), part.getLastColumn()));
+                    parts.push(RangeRef.of(part.getFirstRow(), part.getFirstColumn(), middle - 1, part.getLastColumn()));
+                } else {
+                    int middle = part.getFirstColumn() + part.getColumnCount() / 2;
+                    parts.push(RangeRef.of(part.getFirstRow(), middle, part.getLastRow(), part.getLastColumn()));
+                    parts.push(RangeRef.of(part.getFirstRow(), part.getFirstColumn(), part.getLastRow(), middle - 1));
+                }
+            }
+        } catch (COMException e) {
+            throw new ExcelException(e, "Failed to get colors of " + pane + " in range '" + range + "'");
+        }
+        return colors;
+    }
+
     /**
      * Sets the font color of a range
      */
     public void setFontColor(String range, ExcelColor color) throws ExcelException {
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             pRange.setFontColor(color);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set font color in range '" + range + "'");
         }
     }
 
+    /**
+     * @see #setFontColor(String, ExcelColor)
+     * @param range reference to the range
+     */
+    public void setFontColor(RangeRef range, ExcelColor color) throws ExcelException {
+        this.setFontColor(range.getAddress(), color);
+    }
+
     /**
      * Gets the font color of the range
      * @throws NullPointerException if range has multiple fill colors (or an unexpected error appears)
      */
     public ExcelColor getFontColor(String range) throws ExcelException, NullPointerException {
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             return pRange.getFontColor();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get font color in range '" + range + "'");
         }
     }
 
+    /**
+     * @see #getFontColor(String)
+     * @param range reference to the range
+     */
+    public ExcelColor getFontColor(RangeRef range) throws ExcelException, NullPointerException {
+        return this.getFontColor(range.getAddress());
+    }
+
     /**
      * Sets the border color of a range
      */
     public void setBorderColor(String range, ExcelColor color) throws ExcelException {
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             pRange.setBorderColor(color);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set border color in range '" + range + "'");
         }
     }
 
+    /**
+     * @see #setBorderColor(String, ExcelColor)
+     * @param range reference to the range
+     */
+    public void setBorderColor(RangeRef range, ExcelColor color) throws ExcelException {
+        this.setBorderColor(range.getAddress(), color);
+    }
+
     /**
      * Gets the border color of the range
      * @throws NullPointerException if range has multiple fill colors (or an unexpected error appears)
      */
     public ExcelColor getBorderColor(String range) throws ExcelException, NullPointerException {
-        try {
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             return pRange.getBorderColor();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get border color in range '" + range + "'");
         }
     }
 
+    /**
+     * @see #getBorderColor(String)
+     * @param range reference to the range
+     */
+    public ExcelColor getBorderColor(RangeRef range) throws ExcelException, NullPointerException {
+        return this.getBorderColor(range.getAddress());
+    }
+
     /**
      * Sets a comment for one cell. Setting columns for multiple cells is not supported.
      * @param range cell
@@ -447,12 +1322,23 @@ public class Worksheet extends COMLateBindingObject {
      * @throws IllegalArgumentException when a multiple cell range is given
      */
     public void setComment(String range, String comment) throws ExcelException, IllegalArgumentException {
-        try {
-            int[] rangeBounds = Util.getRangeSize(range);
-            if (rangeBounds[0] != 1 || rangeBounds[1] != 1) {
-                throw new IllegalArgumentException("multiple cell range given. comment can be set for one cell only.");
-            }
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        if (AddressParser.isMultipleCells(range)) {
+            throw new IllegalArgumentException("multiple cell range given. comment can be set for one cell only.");
+        }
+        writeComment(range, comment);
+    }
+
+    /**
+     * @see #setComment(String, String)
+     * @param cell reference to the cell
+     */
+    public void setComment(CellRef cell, String comment) throws ExcelException {
+        writeComment(cell.getAddress(), comment);
+    }
+
+    private void writeComment(String range, String comment) throws ExcelException {
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             pRange.setComment(comment);
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to set comment in range '" + range + "'");
@@ -466,12 +1352,23 @@ public class Worksheet extends COMLateBindingObject {
      * @throws IllegalArgumentException when a multiple cell range is given
      */
     public String getComment(String range) throws ExcelException, IllegalArgumentException {
-        try {
-            int[] rangeBounds = Util.getRangeSize(range);
-            if (rangeBounds[0] != 1 || rangeBounds[1] != 1) {
-                throw new IllegalArgumentException("multiple cell range given. comment can be read from one cell only.");
-            }
-            Range pRange = new Range(this.getAutomationProperty("Range", this, new Variant.VARIANT(range)));
+        if (AddressParser.isMultipleCells(range)) {
+            throw new IllegalArgumentException("multiple cell range given. comment can be read from one cell only.");
+        }
+        return readComment(range);
+    }
+
+    /**
+     * @see #getComment(String)
+     * @param cell reference to the cell
+     */
+    public String getComment(CellRef cell) throws ExcelException {
+        return readComment(cell.getAddress());
+    }
+
+    private String readComment(String range) throws ExcelException {
+        try (ComScope scope = ComScope.open()) {
+            Range pRange = getRange(range);
             return pRange.getComment();
         } catch (COMException e) {
             throw new ExcelException(e, "Failed to get comment in range '" + range + "'");
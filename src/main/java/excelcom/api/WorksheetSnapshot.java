@@ -0,0 +1,161 @@
+package excelcom.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory copy of the content of a worksheet for repeated lookups without calling excel.
+ * The content is loaded once. Writes through the {@link Worksheet} the snapshot was created from invalidate the
+ * written cells, which are read again on their next lookup. Other changes, e.g. by formulas depending on
+ * written cells or by the user, are not noticed. Call {@link #refresh()} to load everything again.
+ */
+public class WorksheetSnapshot implements WriteListener {
+    private final Worksheet worksheet;
+    // loaded range or null if UsedRange is loaded
+    private final RangeRef requestedRange;
+
+    private RangeRef bounds;
+    private Object[][] content;
+    // cells outside of bounds which were read again after they were written
+    private final Map<Long, Object> overlay = new HashMap<>();
+    private final InvalidRanges invalidRanges = new InvalidRanges();
+
+    /**
+     * @param worksheet worksheet to be copied
+     * @param range range to be loaded, null for UsedRange
+     */
+    WorksheetSnapshot(Worksheet worksheet, RangeRef range) throws ExcelException {
+        this.worksheet = worksheet;
+        this.requestedRange = range;
+        load();
+    }
+
+    private void load() throws ExcelException {
+        RangeRef range = requestedRange == null ? worksheet.getUsedBounds() : requestedRange;
+        Object[][] loaded = worksheet.getContent(range);
+        this.bounds = range;
+        this.content = loaded;
+        this.overlay.clear();
+        this.invalidRanges.clear();
+    }
+
+    /**
+     * Loads the content again
+     * @throws ExcelException if loading fails
+     */
+    public void refresh() throws ExcelException {
+        load();
+    }
+
+    /**
+     * @return range which is held in memory. For a snapshot of UsedRange, every cell outside of it is empty.
+     */
+    public RangeRef getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Marks cells as invalid, they are read again on their next lookup. Called by the worksheet for writes through it,
+     * can be called for cells which were changed otherwise.
+     * @param range changed range or null if it's unknown
+     */
+    public void invalidate(RangeRef range) {
+        invalidRanges.add(range);
+    }
+
+    /**
+     * Reads invalid cells again
+     * @param row row index of the requested cell, 0-based
+     * @param column column index of the requested cell, 0-based
+     */
+    private void validate(int row, int column) throws ExcelException {
+        if (invalidRanges.isAll()) {
+            load();
+            return;
+        }
+        // a range is only valid once it was read, a failed read is repeated on the next lookup
+        for (RangeRef range = invalidRanges.find(row, column); range != null; range = invalidRanges.find(row, column)) {
+            reload(range);
+            invalidRanges.remove(range);
+        }
+    }
+
+    private void reload(RangeRef range) throws ExcelException {
+        Object[][] values = worksheet.getContent(range);
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < values[i].length; j++) {
+                int row = range.getFirstRow() + i, column = range.getFirstColumn() + j;
+                if (bounds.contains(row, column)) {
+                    content[row - bounds.getFirstRow()][column - bounds.getFirstColumn()] = values[i][j];
+                } else {
+                    overlay.put(((long) row << 32) | column, values[i][j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets content from one cell
+     * @param cell reference to the cell
+     * @return cell value
+     * @throws ExcelException if invalid cells can't be read again
+     */
+    public Object getUnaryContent(CellRef cell) throws ExcelException {
+        return this.getUnaryContent(cell.getRow(), cell.getColumn());
+    }
+
+    /**
+     * @see #getUnaryContent(CellRef)
+     * @param range one cell range, e.g. "A5"
+     * @throws IllegalArgumentException if multiple cell range was given
+     */
+    public Object getUnaryContent(String range) throws ExcelException, IllegalArgumentException {
+        return this.getUnaryContent(CellRef.parse(range));
+    }
+
+    /**
+     * @see #getUnaryContent(CellRef)
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     */
+    public Object getUnaryContent(int row, int column) throws ExcelException {
+        validate(row, column);
+        if (bounds.contains(row, column)) {
+            return content[row - bounds.getFirstRow()][column - bounds.getFirstColumn()];
+        }
+        long key = ((long) row << 32) | column;
+        if (overlay.containsKey(key)) {
+            return overlay.get(key);
+        }
+        // cells outside of UsedRange are empty, outside of a requested range they have to be read
+        return requestedRange == null ? null : worksheet.getUnaryContent(row, column);
+    }
+
+    /**
+     * Gets the content in range
+     * @param range reference to the range
+     * @return 2-dimensional array of content
+     * @throws ExcelException if invalid cells can't be read again
+     */
+    public Object[][] getContent(RangeRef range) throws ExcelException {
+        if (requestedRange != null && !(bounds.contains(range.getFirstRow(), range.getFirstColumn())
+                && bounds.contains(range.getLastRow(), range.getLastColumn()))) {
+            return worksheet.getContent(range);
+        }
+        Object[][] values = new Object[range.getRowCount()][range.getColumnCount()];
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < values[i].length; j++) {
+                values[i][j] = getUnaryContent(range.getFirstRow() + i, range.getFirstColumn() + j);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @see #getContent(RangeRef)
+     * @param range range with content, e.g. "A1:C3"
+     */
+    public Object[][] getContent(String range) throws ExcelException, IllegalArgumentException {
+        return this.getContent(RangeRef.parse(range));
+    }
+}
@@ -1,16 +1,19 @@
 package excelcom.api;
 
 import com.sun.jna.platform.win32.COM.COMException;
-import com.sun.jna.platform.win32.COM.COMLateBindingObject;
-import com.sun.jna.platform.win32.COM.IDispatch;
+import excelcom.dispatch.Dispatch;
 
 /**
  * List of worksheets as COM object
  * Only for internal use
  */
-class Worksheets extends COMLateBindingObject {
-    Worksheets(IDispatch iDispatch) throws COMException {
-        super(iDispatch);
+class Worksheets {
+    private final Dispatch dispatch;
+    private final Workbook workbook;
+
+    Worksheets(Dispatch dispatch, Workbook workbook) throws COMException {
+        this.dispatch = dispatch;
+        this.workbook = workbook;
     }
 
     /**
@@ -18,7 +21,7 @@ class Worksheets extends COMLateBindingObject {
      * @param name Name of new worksheet
      */
     Worksheet addWorksheet(String name) {
-        Worksheet ws = new Worksheet(this.getAutomationProperty("Add"));
+        Worksheet ws = new Worksheet((Dispatch) this.dispatch.get("Add"), workbook);
         ws.setName(name);
         return ws;
     }
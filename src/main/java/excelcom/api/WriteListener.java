@@ -0,0 +1,13 @@
+package excelcom.api;
+
+/**
+ * Cache of worksheet content which is notified when cells are written through the {@link Worksheet}
+ */
+interface WriteListener {
+
+    /**
+     * Marks written cells as invalid
+     * @param range written range or null if it's unknown
+     */
+    void invalidate(RangeRef range);
+}
@@ -0,0 +1,197 @@
+package excelcom.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls made through the dispatches of a connection with their latency and the estimated size of
+ * marshaled multiple cell values. Disabled metrics cost one volatile read per call.
+ */
+public final class CallMetrics implements CallMetricsMXBean {
+    // latency buckets by power of 2 microseconds, the last one collects everything above
+    private static final int BUCKETS = 24;
+
+    private volatile boolean enabled;
+    private final Map<String, Member> gets = new ConcurrentHashMap<>();
+    private final Map<String, Member> puts = new ConcurrentHashMap<>();
+    private final Map<String, Member> calls = new ConcurrentHashMap<>();
+
+    /**
+     * @param enabled true if calls are counted from the start
+     */
+    public CallMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Wraps a dispatch, so calls to it and to the objects it returns are counted
+     * @param dispatch dispatch to be measured
+     * @return measuring dispatch
+     */
+    public Dispatch wrap(Dispatch dispatch) {
+        return new MeteredDispatch(this, dispatch);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param kind 'g' for get, 'p' for put and 'c' for call
+     */
+    void record(char kind, String name, long nanos, long bytes, boolean failed) {
+        Map<String, Member> members = kind == 'g' ? gets : kind == 'p' ? puts : calls;
+        Member member = members.get(name);
+        if (member == null) {
+            member = members.computeIfAbsent(name, n -> new Member());
+        }
+        member.record(nanos, bytes, failed);
+    }
+
+    /**
+     * @return all members by their name, e.g. "put Value"
+     */
+    private Map<String, Member> members() {
+        Map<String, Member> all = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        gets.forEach((name, member) -> all.put("get " + name, member));
+        puts.forEach((name, member) -> all.put("put " + name, member));
+        calls.forEach((name, member) -> all.put("call " + name, member));
+        return all;
+    }
+
+    public long getCallCount() {
+        long count = 0;
+        for (Member member : members().values()) {
+            count += member.count.sum();
+        }
+        return count;
+    }
+
+    public long getErrorCount() {
+        long count = 0;
+        for (Member member : members().values()) {
+            count += member.errors.sum();
+        }
+        return count;
+    }
+
+    public long getTotalTimeMillis() {
+        long nanos = 0;
+        for (Member member : members().values()) {
+            nanos += member.nanos.sum();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public long getMarshaledBytes() {
+        long bytes = 0;
+        for (Member member : members().values()) {
+            bytes += member.bytes.sum();
+        }
+        return bytes;
+    }
+
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        members().forEach((name, member) -> counts.put(name, member.count.sum()));
+        return counts;
+    }
+
+    public Map<String, Long> getMarshaledBytesByMember() {
+        Map<String, Long> bytes = new TreeMap<>();
+        members().forEach((name, member) -> bytes.put(name, member.bytes.sum()));
+        return bytes;
+    }
+
+    /**
+     * Gets a percentile of the latency of a member, estimated by the upper bound of its histogram bucket
+     * @param member member name, e.g. "put Value"
+     * @param percentile percentile between 0 and 100
+     * @return latency in microseconds, 0 if the member was not called
+     */
+    public long getLatencyPercentileMicros(String member, double percentile) {
+        Member m = members().get(member);
+        return m == null ? 0 : m.percentileMicros(percentile);
+    }
+
+    public String[] getReport() {
+        List<Map.Entry<String, Member>> entries = new ArrayList<>(members().entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().nanos.sum(), a.getValue().nanos.sum()));
+        String[] report = new String[entries.size()];
+        for (int i = 0; i < report.length; i++) {
+            String name = entries.get(i).getKey();
+            Member member = entries.get(i).getValue();
+            long count = member.count.sum();
+            report[i] = String.format("%s: %d calls, %d errors, mean %d us, p50 %d us, p99 %d us, max %d us, %d bytes",
+                    name, count, member.errors.sum(), count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(member.nanos.sum() / count),
+                    member.percentileMicros(50), member.percentileMicros(99), TimeUnit.NANOSECONDS.toMicros(member.max.get()),
+                    member.bytes.sum());
+        }
+        return report;
+    }
+
+    public void reset() {
+        gets.clear();
+        puts.clear();
+        calls.clear();
+    }
+
+    private static class Member {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+        Member() {
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos, long bytes, boolean failed) {
+            count.increment();
+            this.nanos.add(nanos);
+            if (bytes > 0) {
+                this.bytes.add(bytes);
+            }
+            if (failed) {
+                errors.increment();
+            }
+            max.accumulateAndGet(nanos, Math::max);
+            long micros = nanos / 1000;
+            int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            histogram[Math.min(bucket, BUCKETS - 1)].increment();
+        }
+
+        /**
+         * @return upper bound of the bucket containing the percentile in microseconds
+         */
+        long percentileMicros(double percentile) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += histogram[i].sum();
+                if (seen >= rank) {
+                    return 1L << i;
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMicros(max.get());
+        }
+    }
+}
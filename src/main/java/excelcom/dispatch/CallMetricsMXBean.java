@@ -0,0 +1,53 @@
+package excelcom.dispatch;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link CallMetrics} of a connection. Members are named by kind and name, e.g. "put Value".
+ */
+public interface CallMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return number of calls of all members
+     */
+    long getCallCount();
+
+    /**
+     * @return number of calls which threw an exception
+     */
+    long getErrorCount();
+
+    /**
+     * @return time spent in calls in milliseconds
+     */
+    long getTotalTimeMillis();
+
+    /**
+     * @return estimated size of the multiple cell values which were passed or returned
+     */
+    long getMarshaledBytes();
+
+    /**
+     * @return number of calls by member
+     */
+    Map<String, Long> getCallCounts();
+
+    /**
+     * @return estimated size of the marshaled values by member
+     */
+    Map<String, Long> getMarshaledBytesByMember();
+
+    /**
+     * @return one line per member with count, errors, mean, p50, p99 and max latency, the slowest members first
+     */
+    String[] getReport();
+
+    /**
+     * Sets all counters to 0
+     */
+    void reset();
+}
@@ -0,0 +1,303 @@
+package excelcom.dispatch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records api calls like Worksheet.getContent and the dispatches they make as spans in a ring buffer, which can be
+ * written as Chrome trace-event JSON and opened in chrome://tracing or Perfetto. Spans of one thread nest by time,
+ * so the dispatches show up below the api call which made them.
+ *
+ * The tracer is shared by all connections like the {@link DispIdCache} and disabled unless the system property
+ * excelcom.trace is true. Disabled tracing costs one volatile read per call. The buffer keeps the last
+ * excelcom.trace.capacity spans (default 65536), older spans are overwritten.
+ *
+ * <pre>
+ * CallTracer tracer = CallTracer.getInstance();
+ * tracer.setEnabled(true);
+ * worksheet.getContent("A1:Z50000");
+ * tracer.writeChromeTrace(new File("trace.json"));
+ * </pre>
+ */
+public final class CallTracer {
+
+    private static final CallTracer INSTANCE = new CallTracer(Integer.getInteger("excelcom.trace.capacity", 1 << 16));
+    private static final Span NO_SPAN = new Span(null, null, null, 0);
+
+    private volatile boolean enabled = Boolean.getBoolean("excelcom.trace");
+    // timestamps are relative to the creation of the tracer
+    private final long origin = System.nanoTime();
+    private final AtomicReferenceArray<Event> events;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+
+    private CallTracer(int capacity) {
+        // round up to a power of 2, so the slot is a mask of the sequence
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return tracer shared by all connections
+     */
+    public static CallTracer getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return maximum number of spans kept
+     */
+    public int getCapacity() {
+        return events.length();
+    }
+
+    /**
+     * Wraps a dispatch, so calls to it and to the objects it returns are traced while the tracer is enabled
+     * @param dispatch dispatch to be traced
+     * @return tracing dispatch
+     */
+    public Dispatch wrap(Dispatch dispatch) {
+        return new TracingDispatch(this, dispatch);
+    }
+
+    /**
+     * Opens a span which ends when it's closed
+     * @param name name of the span, e.g. "Worksheet.getContent"
+     * @param detail detail shown with the span, e.g. the range, or null
+     * @return span to be closed, a shared no-op span if tracing is disabled
+     */
+    public Span span(String name, Object detail) {
+        if (!enabled) {
+            return NO_SPAN;
+        }
+        return new Span(this, name, detail == null ? null : detail.toString(), System.nanoTime());
+    }
+
+    /**
+     * Records a span which ended now
+     * @param category "api" for api calls, "dispatch" for dispatches and "com" for COM internals
+     * @param start start from System.nanoTime()
+     * @param bytes estimated size of the marshaled values, 0 if there are none
+     */
+    void record(String category, String name, String detail, long start, long bytes) {
+        long end = System.nanoTime();
+        Thread thread = Thread.currentThread();
+        long threadId = thread.getId();
+        if (!threadNames.containsKey(threadId)) {
+            threadNames.put(threadId, thread.getName());
+        }
+        Event event = new Event(category, name, detail, threadId, start - origin, end - start, bytes);
+        events.lazySet((int) (next.getAndIncrement() & mask), event);
+    }
+
+    /**
+     * @return recorded spans by start time
+     */
+    public List<Event> getEvents() {
+        List<Event> list = new ArrayList<>();
+        for (int i = 0; i < events.length(); i++) {
+            Event event = events.get(i);
+            if (event != null) {
+                list.add(event);
+            }
+        }
+        // parents end after their children, so they are recorded later
+        list.sort(Comparator.comparingLong(Event::getStartNanos).thenComparing(Comparator.comparingLong(Event::getDurationNanos).reversed()));
+        return list;
+    }
+
+    /**
+     * Removes all recorded spans
+     */
+    public void clear() {
+        for (int i = 0; i < events.length(); i++) {
+            events.set(i, null);
+        }
+    }
+
+    /**
+     * Writes the recorded spans as Chrome trace-event JSON
+     * @param file file to be written
+     * @throws IOException if the file can't be written
+     */
+    public void writeChromeTrace(File file) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8))) {
+            writeChromeTrace(writer);
+        }
+    }
+
+    /**
+     * Writes the recorded spans as Chrome trace-event JSON, complete events ("ph":"X") with microsecond
+     * timestamps and a thread_name metadata event per thread
+     * @param writer writer, which is not closed
+     * @throws IOException if writing fails
+     */
+    public void writeChromeTrace(Writer writer) throws IOException {
+        List<Event> list = getEvents();
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+                    + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+        }
+        for (Event event : list) {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write("{\"name\":" + quote(event.name) + ",\"cat\":\"" + event.category
+                    + "\",\"ph\":\"X\",\"pid\":1,\"tid\":" + event.threadId
+                    + ",\"ts\":" + micros(event.startNanos) + ",\"dur\":" + micros(event.durationNanos));
+            if (event.detail != null || event.bytes > 0) {
+                writer.write(",\"args\":{");
+                if (event.detail != null) {
+                    writer.write("\"detail\":" + quote(event.detail));
+                }
+                if (event.bytes > 0) {
+                    writer.write((event.detail != null ? "," : "") + "\"bytes\":" + event.bytes);
+                }
+                writer.write("}");
+            }
+            writer.write("}");
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Open span of an api call, which is recorded when it's closed
+     */
+    public static final class Span implements AutoCloseable {
+        private final CallTracer tracer;
+        private final String name;
+        private final String detail;
+        private final long start;
+
+        private Span(CallTracer tracer, String name, String detail, long start) {
+            this.tracer = tracer;
+            this.name = name;
+            this.detail = detail;
+            this.start = start;
+        }
+
+        public void close() {
+            if (tracer != null) {
+                tracer.record("api", name, detail, start, 0);
+            }
+        }
+    }
+
+    /**
+     * Recorded span
+     */
+    public static final class Event {
+        private final String category;
+        private final String name;
+        private final String detail;
+        private final long threadId;
+        private final long startNanos;
+        private final long durationNanos;
+        private final long bytes;
+
+        private Event(String category, String name, String detail, long threadId, long startNanos, long durationNanos, long bytes) {
+            this.category = category;
+            this.name = name;
+            this.detail = detail;
+            this.threadId = threadId;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return "api", "dispatch" or "com"
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * @return api call like "Worksheet.getContent" or dispatch like "get Range"
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return detail like the range or null
+         */
+        public String getDetail() {
+            return detail;
+        }
+
+        public long getThreadId() {
+            return threadId;
+        }
+
+        /**
+         * @return start relative to the creation of the tracer
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * @return estimated size of the marshaled multiple cell values, 0 if there are none
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + (detail == null ? "" : "(" + detail + ")") + " " + TimeUnit.NANOSECONDS.toMicros(durationNanos) + " us";
+        }
+    }
+}
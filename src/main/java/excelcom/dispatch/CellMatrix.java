@@ -0,0 +1,154 @@
+package excelcom.dispatch;
+
+import com.sun.jna.platform.win32.WinDef;
+
+import java.io.Closeable;
+import java.util.Date;
+
+/**
+ * Read-only view of the values of a multiple cell range, indexed by [row, column] (0-based).
+ * Cells are decoded when they are accessed, so reading a few cells of a large range copies nothing.
+ *
+ * A matrix returned by a {@link ComDispatch} holds native memory until it's closed. It must not be used afterwards.
+ */
+public abstract class CellMatrix implements Closeable {
+
+    /**
+     * Type of a cell value
+     */
+    public enum Type {
+        EMPTY, NUMBER, STRING, BOOLEAN, DATE, ERROR, OTHER
+    }
+
+    /**
+     * @return number of rows
+     */
+    public abstract int getRowCount();
+
+    /**
+     * @return number of columns
+     */
+    public abstract int getColumnCount();
+
+    /**
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return type of the cell value
+     */
+    public abstract Type getType(int row, int column);
+
+    /**
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return number in the cell or NaN if the cell is no number
+     */
+    public abstract double getDouble(int row, int column);
+
+    /**
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return text in the cell or null if the cell is no string
+     */
+    public abstract String getString(int row, int column);
+
+    /**
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return cell value as java object, see {@link Dispatch} for possible types
+     */
+    public abstract Object get(int row, int column);
+
+    /**
+     * Gets a date as milliseconds since 1970-01-01 UTC. Excel dates have no time zone, they are read in the
+     * default time zone like the Dates returned by {@link #get(int, int)}.
+     * @param row row index, 0-based
+     * @param column column index, 0-based
+     * @return milliseconds or Long.MIN_VALUE if the cell is no date
+     */
+    public long getEpochMillis(int row, int column) {
+        Object value = get(row, column);
+        return value instanceof Date ? ((Date) value).getTime() : Long.MIN_VALUE;
+    }
+
+    /**
+     * Releases the underlying data. Does nothing by default.
+     */
+    public void close() {
+    }
+
+    /**
+     * Copies all values
+     * @return matrix of the form [row][column]
+     */
+    public Object[][] toArray() {
+        int rowCount = getRowCount(), columnCount = getColumnCount();
+        Object[][] values = new Object[rowCount][columnCount];
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                values[row][column] = get(row, column);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Creates a view of a java matrix
+     * @param values matrix of the form [row][column], all rows must have the same length
+     * @return view of values, changes of values are visible
+     */
+    public static CellMatrix wrap(final Object[][] values) {
+        return new CellMatrix() {
+            public int getRowCount() {
+                return values.length;
+            }
+
+            public int getColumnCount() {
+                return values.length == 0 ? 0 : values[0].length;
+            }
+
+            public Type getType(int row, int column) {
+                return typeOf(values[row][column]);
+            }
+
+            public double getDouble(int row, int column) {
+                Object value = values[row][column];
+                return typeOf(value) == Type.NUMBER ? ((Number) value).doubleValue() : Double.NaN;
+            }
+
+            public String getString(int row, int column) {
+                Object value = values[row][column];
+                return value instanceof String ? (String) value : null;
+            }
+
+            public Object get(int row, int column) {
+                return values[row][column];
+            }
+
+            public Object[][] toArray() {
+                Object[][] copy = new Object[values.length][];
+                for (int row = 0; row < values.length; row++) {
+                    copy[row] = values[row].clone();
+                }
+                return copy;
+            }
+        };
+    }
+
+    private static Type typeOf(Object value) {
+        if (value == null) {
+            return Type.EMPTY;
+        } else if (value instanceof Double || value instanceof Integer || value instanceof Float
+                || value instanceof Long || value instanceof Short) {
+            return Type.NUMBER;
+        } else if (value instanceof String) {
+            return Type.STRING;
+        } else if (value instanceof Boolean) {
+            return Type.BOOLEAN;
+        } else if (value instanceof Date) {
+            return Type.DATE;
+        } else if (value instanceof WinDef.SCODE) {
+            return Type.ERROR;
+        }
+        return Type.OTHER;
+    }
+}
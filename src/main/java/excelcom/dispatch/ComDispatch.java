@@ -0,0 +1,271 @@
+package excelcom.dispatch;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.WString;
+import com.sun.jna.platform.win32.COM.COMException;
+import com.sun.jna.platform.win32.COM.COMLateBindingObject;
+import com.sun.jna.platform.win32.COM.COMUtils;
+import com.sun.jna.platform.win32.COM.IDispatch;
+import com.sun.jna.platform.win32.Guid;
+import com.sun.jna.platform.win32.OaIdl;
+import com.sun.jna.platform.win32.OleAuto;
+import com.sun.jna.platform.win32.Variant;
+import com.sun.jna.platform.win32.WTypes;
+import com.sun.jna.platform.win32.WinNT;
+import excelcom.util.Util;
+
+/**
+ * Dispatch backed by a real COM object, using JNA late binding.
+ * Converts java arguments to VARIANTs and VARIANT results back to java objects.
+ */
+public class ComDispatch extends COMLateBindingObject implements Dispatch {
+
+    // interface of this object for the DispIdCache, null if it's unknown
+    private final DispIdCache.Type type;
+
+    /**
+     * Wraps an existing COM object. The interface is unknown, so DISPIDs are not cached.
+     * @param iDispatch COM object
+     */
+    public ComDispatch(IDispatch iDispatch) {
+        this(iDispatch, null);
+    }
+
+    /**
+     * @param iDispatch COM object
+     * @param type interface of the object for the DispIdCache, null if it's unknown
+     */
+    ComDispatch(IDispatch iDispatch, DispIdCache.Type type) {
+        super(iDispatch);
+        this.type = type;
+    }
+
+    /**
+     * Creates a new COM object or connects to an active one. COM must be initialized on the calling thread.
+     * @param progId program id, e.g. "Excel.Application"
+     * @param useActiveInstance if true, an existing instance will be used
+     * @throws COMException if the object can't be created
+     */
+    public ComDispatch(String progId, boolean useActiveInstance) throws COMException {
+        super(progId, useActiveInstance);
+        this.type = DispIdCache.getInstance().root(progId);
+    }
+
+    public Object get(String name, Object... args) throws COMException {
+        return dispatch(OleAuto.DISPATCH_PROPERTYGET, name, args);
+    }
+
+    public void put(String name, Object... args) throws COMException {
+        Variant.VARIANT[] variants = toVariants(args);
+        try {
+            invoke(OleAuto.DISPATCH_PROPERTYPUT, null, name, variants);
+        } finally {
+            destroyArrays(variants);
+        }
+    }
+
+    public Object call(String name, Object... args) throws COMException {
+        return dispatch(OleAuto.DISPATCH_METHOD, name, args);
+    }
+
+    private Object dispatch(int type, String name, Object[] args) {
+        Variant.VARIANT.ByReference result = new Variant.VARIANT.ByReference();
+        Variant.VARIANT[] variants = toVariants(args);
+        try {
+            invoke(type, result, name, variants);
+        } finally {
+            destroyArrays(variants);
+        }
+        return toJava(result, this.type, name, args == null ? 0 : args.length);
+    }
+
+    private void invoke(int type, Variant.VARIANT.ByReference result, String name, Variant.VARIANT[] variants) {
+        if (this.type == null) {
+            this.oleMethod(type, result, this.getIDispatch(), name, variants);
+        } else {
+            this.oleMethod(type, result, this.getIDispatch(), getDispId(name), variants);
+        }
+    }
+
+    /**
+     * Gets the DISPID of a member from the DispIdCache or by calling GetIDsOfNames
+     */
+    private OaIdl.DISPID getDispId(String name) {
+        DispIdCache cache = DispIdCache.getInstance();
+        Integer cached = cache.get(this.type, name);
+        if (cached != null) {
+            return new OaIdl.DISPID(cached);
+        }
+        CallTracer tracer = CallTracer.getInstance();
+        long start = System.nanoTime();
+        OaIdl.DISPIDByReference dispId = new OaIdl.DISPIDByReference();
+        WinNT.HRESULT hr = this.getIDispatch().GetIDsOfNames(new Guid.REFIID(Guid.IID_NULL),
+                new WString[]{new WString(name)}, 1, LOCALE_USER_DEFAULT, dispId);
+        if (tracer.isEnabled()) {
+            tracer.record("com", "GetIDsOfNames", name, start, 0);
+        }
+        COMUtils.checkRC(hr);
+        cache.put(this.type, name, dispId.getValue().intValue());
+        return dispId.getValue();
+    }
+
+    /**
+     * Frees the SAFEARRAYs created for the arguments, the callee copies them
+     */
+    private static void destroyArrays(Variant.VARIANT[] variants) {
+        if (variants == null) {
+            return;
+        }
+        for (Variant.VARIANT variant : variants) {
+            if ((variant.getVarType().intValue() & Variant.VT_ARRAY) != 0) {
+                Object value = variant.getValue();
+                if (value instanceof OaIdl.SAFEARRAY) {
+                    ((OaIdl.SAFEARRAY) value).destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts java arguments to VARIANTs
+     * @param args arguments, see {@link Dispatch} for supported types
+     * @return array of VARIANTs or null if there are no arguments
+     */
+    private static Variant.VARIANT[] toVariants(Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        Variant.VARIANT[] variants = new Variant.VARIANT[args.length];
+        for (int i = 0; i < args.length; i++) {
+            variants[i] = toVariant(args[i]);
+        }
+        return variants;
+    }
+
+    private static Variant.VARIANT toVariant(Object arg) {
+        if (arg instanceof ComDispatch) {
+            return ((ComDispatch) arg).toVariant();
+        } else if (arg instanceof Object[][]) {
+            return new Variant.VARIANT(toSafeArray((Object[][]) arg));
+        } else if (arg instanceof TypedBlock) {
+            return new Variant.VARIANT(toSafeArray((TypedBlock) arg));
+        }
+        return Util.createVariantFromObject(arg);
+    }
+
+    /**
+     * Creates a SAFEARRAY from a row-major matrix. Rows may have different lengths, missing cells stay empty.
+     * @param content matrix of the form [row][column]
+     * @return SAFEARRAY with the content
+     */
+    static OaIdl.SAFEARRAY toSafeArray(Object[][] content) {
+        int rowCount = content.length;
+        int columnCount = content[0].length;
+        // get maximum column count
+        for(int i = 1; i < rowCount; i++) {
+            if(content[i].length > columnCount) {
+                columnCount = content[i].length;
+            }
+        }
+
+        // transpose content: in java it's (row,column) but in excel it's (column,row)
+        OaIdl.SAFEARRAY sa = OaIdl.SAFEARRAY.createSafeArray(columnCount, rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < content[i].length; j++) {
+                sa.putElement(Util.createVariantFromObject(content[i][j]), j, i);
+            }
+        }
+        return sa;
+    }
+
+    /**
+     * Creates a typed SAFEARRAY from a block. The values are copied into the array data with one bulk write
+     * instead of one SafeArrayPutElement call per cell.
+     * @param block values column by column, which already is the layout of the SAFEARRAY
+     * @return SAFEARRAY of type VT_R8, VT_BOOL or VT_BSTR
+     */
+    static OaIdl.SAFEARRAY toSafeArray(TypedBlock block) {
+        int count = block.getRowCount() * block.getColumnCount();
+        int varType;
+        switch (block.getType()) {
+            case DOUBLE:
+                varType = Variant.VT_R8;
+                break;
+            case BOOLEAN:
+                varType = Variant.VT_BOOL;
+                break;
+            default:
+                varType = Variant.VT_BSTR;
+        }
+
+        // same dimensions as toSafeArray(Object[][]), excel indexes (row, column) with rows varying fastest
+        OaIdl.SAFEARRAY sa = OaIdl.SAFEARRAY.createSafeArray(new WTypes.VARTYPE(varType), block.getColumnCount(), block.getRowCount());
+        Pointer data = sa.accessData();
+        try {
+            switch (block.getType()) {
+                case DOUBLE:
+                    data.write(0, block.getDoubles(), 0, count);
+                    break;
+                case BOOLEAN:
+                    boolean[] booleans = block.getBooleans();
+                    // VARIANT_BOOL is -1 for true and 0 for false
+                    short[] variantBools = new short[count];
+                    for (int i = 0; i < count; i++) {
+                        variantBools[i] = booleans[i] ? (short) -1 : 0;
+                    }
+                    data.write(0, variantBools, 0, count);
+                    break;
+                default:
+                    // strings can't be copied, but all pointers are written at once. SafeArrayDestroy frees the BSTRs.
+                    String[] strings = block.getStrings();
+                    Pointer[] bstrs = new Pointer[count];
+                    for (int i = 0; i < count; i++) {
+                        if (strings[i] != null && strings[i].length() > 0) {
+                            bstrs[i] = OleAuto.INSTANCE.SysAllocString(strings[i]).getPointer();
+                        }
+                    }
+                    data.write(0, bstrs, 0, count);
+            }
+        } finally {
+            sa.unaccessData();
+        }
+        return sa;
+    }
+
+    /**
+     * Converts a VARIANT to a java object
+     * @param variant VARIANT returned by COM
+     * @param type interface of the called object for the DispIdCache, null if it's unknown
+     * @param name called member
+     * @param argCount number of arguments of the call
+     * @return java representation, see {@link Dispatch} for possible types
+     */
+    private static Object toJava(Variant.VARIANT variant, DispIdCache.Type type, String name, int argCount) {
+        switch (variant.getVarType().intValue()) {
+            case Variant.VT_EMPTY:
+            case Variant.VT_NULL:
+                return null;
+            case Variant.VT_BSTR:
+                return variant.stringValue();
+            case Variant.VT_BOOL:
+                return variant.booleanValue();
+            case Variant.VT_DATE:
+                return variant.dateValue();
+            case Variant.VT_I2:
+            case Variant.VT_I4:
+            case Variant.VT_INT:
+                return variant.intValue();
+            case Variant.VT_R8:
+                return variant.doubleValue();
+            default:
+                Object value = variant.getValue();
+                if (value instanceof IDispatch) {
+                    // objects returned by the same member with the same number of arguments share their interface
+                    return new ComDispatch((IDispatch) value, type == null ? null : type.member(name, argCount));
+                } else if (value instanceof OaIdl.SAFEARRAY) {
+                    return new SafeArrayMatrix((OaIdl.SAFEARRAY) value);
+                }
+                return value;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package excelcom.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Releases the automation objects acquired on the current thread while the scope is open. Without scopes the
+ * objects are released when the garbage collector finalizes their wrappers, so references to excel objects pile up
+ * and the working set of excel grows during long runs. Scopes should be used with try-with-resources:
+ *
+ * <pre>
+ * try (ComScope scope = ComScope.open()) {
+ *     FindResult result = worksheet.find("total");
+ *     ...
+ * } // result must not be used anymore
+ * </pre>
+ *
+ * Workbooks and worksheets are exempt: their handles are cached by name and owned by the connection, so a worksheet
+ * fetched inside a scope stays usable after the scope is closed. They are released when the workbook is closed, the
+ * worksheet is deleted or the connection is quit, see {@link #keep(Dispatch)}.
+ *
+ * Only objects returned by a dispatch passed to {@link #track(Dispatch)} are tracked, which is done for every
+ * {@link excelcom.api.ExcelConnection}. Scopes can be nested, objects belong to the innermost scope and scopes must
+ * be closed in reverse order of their creation. {@link #getLiveCount()} counts the tracked objects which were not
+ * released yet, to find leaks in tests.
+ */
+public final class ComScope implements AutoCloseable {
+
+    private static final ThreadLocal<ComScope> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong LIVE = new AtomicLong();
+
+    private final ComScope parent;
+    private final Thread thread;
+    private final List<Dispatch> acquired = new ArrayList<>();
+    private boolean closed;
+
+    private ComScope(ComScope parent) {
+        this.parent = parent;
+        this.thread = Thread.currentThread();
+    }
+
+    /**
+     * Opens a scope on the current thread
+     * @return scope to be closed by the same thread
+     */
+    public static ComScope open() {
+        ComScope scope = new ComScope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Wraps a dispatch, so the objects it returns, and the objects they return, are released when the scope they
+     * were acquired in is closed. Releasing a tracked object twice does nothing, using it after release throws a
+     * COMException.
+     * @param dispatch dispatch whose results are tracked
+     * @return tracking dispatch
+     */
+    public static Dispatch track(Dispatch dispatch) {
+        return new ScopedDispatch(dispatch, false);
+    }
+
+    /**
+     * Removes an object from the scopes of the current thread, so it's kept until it's released explicitly
+     * @param dispatch object returned by a tracked dispatch
+     */
+    public static void keep(Dispatch dispatch) {
+        for (ComScope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            for (int i = scope.acquired.size() - 1; i >= 0; i--) {
+                if (scope.acquired.get(i) == dispatch) {
+                    scope.acquired.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of tracked objects which were not released yet
+     */
+    public static long getLiveCount() {
+        return LIVE.get();
+    }
+
+    /**
+     * Registers an acquired object in the innermost scope of the current thread
+     */
+    static void acquired(Dispatch dispatch) {
+        LIVE.incrementAndGet();
+        ComScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.acquired.add(dispatch);
+        }
+    }
+
+    static void released() {
+        LIVE.decrementAndGet();
+    }
+
+    /**
+     * @return number of objects acquired in this scope
+     */
+    public int getAcquiredCount() {
+        return acquired.size();
+    }
+
+    /**
+     * Releases the objects acquired in this scope in reverse order of their acquisition
+     * @throws IllegalStateException if it's closed by another thread or a nested scope is still open
+     */
+    public void close() throws IllegalStateException {
+        if (closed) {
+            return;
+        }
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException("Scope must be closed by the thread which opened it");
+        }
+        if (CURRENT.get() != this) {
+            throw new IllegalStateException("Nested scopes must be closed first");
+        }
+        closed = true;
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+        RuntimeException failure = null;
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            try {
+                acquired.get(i).release();
+            } catch (RuntimeException e) {
+                // release the others anyway
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        acquired.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
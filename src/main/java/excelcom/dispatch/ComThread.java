@@ -0,0 +1,119 @@
+package excelcom.dispatch;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.COM.COMException;
+import com.sun.jna.platform.win32.Ole32;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Thread which owns a COM apartment. COM is initialized when the thread starts and uninitialized on
+ * {@link #shutdown()}, tasks are executed one after another in the order they were submitted.
+ *
+ * Automation objects created on this thread can be used from any thread through {@link #marshal(Dispatch)},
+ * every call is then executed on this thread. Callers don't need to initialize COM and never run COM calls
+ * concurrently on the same excel instance.
+ */
+public final class ComThread {
+
+    private final ExecutorService executor;
+    private final boolean initializeCom;
+    private volatile Thread thread;
+
+    /**
+     * Starts the thread
+     * @param name name of the thread
+     * @param initializeCom if true, COM is initialized as single threaded apartment. False for backends without COM,
+     *                      e.g. a {@link SimulatedExcel}.
+     * @throws COMException if COM can't be initialized
+     */
+    public ComThread(String name, boolean initializeCom) throws COMException {
+        this.initializeCom = initializeCom;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+        call(() -> {
+            thread = Thread.currentThread();
+            if (initializeCom) {
+                Ole32.INSTANCE.CoInitializeEx(Pointer.NULL, Ole32.COINIT_APARTMENTTHREADED);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return true if the calling thread is this COM thread
+     */
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Executes a task on this thread without waiting for it
+     * @param task task to be executed
+     * @return future completed with the result of the task or the exception it threw
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * Executes a task on this thread and waits for the result. Tasks called from this thread are executed immediately.
+     * @param task task to be executed
+     * @return result of the task
+     * @throws RuntimeException any exception thrown by the task
+     */
+    public <T> T call(Supplier<T> task) {
+        if (isCurrentThread()) {
+            return task.get();
+        }
+        Future<T> future = executor.submit(task::get);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new COMException("Interrupted while waiting for the COM thread");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new COMException(e.getCause().toString());
+        }
+    }
+
+    /**
+     * Wraps an automation object, so all calls to it and to the objects it returns are executed on this thread
+     * @param dispatch object created on this thread
+     * @return thread-safe dispatch
+     */
+    public Dispatch marshal(Dispatch dispatch) {
+        return dispatch instanceof MarshalingDispatch ? dispatch : new MarshalingDispatch(this, dispatch);
+    }
+
+    /**
+     * Uninitializes COM after all submitted tasks are executed and stops the thread.
+     * @throws COMException if uninitializing fails
+     */
+    public void shutdown() throws COMException {
+        try {
+            if (initializeCom && !executor.isShutdown()) {
+                call(() -> {
+                    Ole32.INSTANCE.CoUninitialize();
+                    return null;
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
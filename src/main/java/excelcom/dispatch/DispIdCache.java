@@ -0,0 +1,183 @@
+package excelcom.dispatch;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of DISPIDs by interface and member name, shared by all {@link ComDispatch} instances.
+ * Without it every call needs a GetIDsOfNames round trip to excel before the actual Invoke.
+ *
+ * Interfaces are identified by the path of members they were obtained from, e.g. "Excel.Application.Workbooks/0".
+ * This assumes that a member called with the same number of arguments always returns the same interface,
+ * which holds for the excel object model used by excelcom.api. Each path is one {@link Type} object, which holds
+ * the DISPIDs of its members and the types of the objects they return, so a call looks up its DISPID and the type
+ * of its result without building any key.
+ */
+public final class DispIdCache {
+
+    private static final DispIdCache INSTANCE = new DispIdCache();
+
+    private final ConcurrentHashMap<String, Type> roots = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private DispIdCache() {
+    }
+
+    /**
+     * @return cache shared by all ComDispatch instances
+     */
+    public static DispIdCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param progId program id of a created object, e.g. "Excel.Application"
+     * @return type of the created object
+     */
+    Type root(String progId) {
+        return roots.computeIfAbsent(progId, Type::new);
+    }
+
+    /**
+     * @param type interface of the object
+     * @param name member name
+     * @return DISPID or null if it's not cached yet
+     */
+    Integer get(Type type, String name) {
+        Integer dispId = type.dispIds.get(name);
+        if (dispId == null) {
+            // member names are case insensitive, another spelling is added once it was looked up
+            dispId = type.dispIdsByKey.get(name.toLowerCase(Locale.ROOT));
+            if (dispId != null) {
+                type.dispIds.put(name, dispId);
+            }
+        }
+        (dispId == null ? misses : hits).incrementAndGet();
+        return dispId;
+    }
+
+    void put(Type type, String name, int dispId) {
+        type.dispIdsByKey.put(name.toLowerCase(Locale.ROOT), dispId);
+        type.dispIds.put(name, dispId);
+    }
+
+    /**
+     * @return number of lookups answered by the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups which needed a GetIDsOfNames call
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of cached DISPIDs
+     */
+    public int size() {
+        int size = 0;
+        for (Type root : roots.values()) {
+            size += root.size();
+        }
+        return size;
+    }
+
+    /**
+     * Sets hit and miss count to 0
+     */
+    public void resetCounters() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Removes all DISPIDs, e.g. after connecting to another excel version
+     */
+    public void clear() {
+        for (Type root : roots.values()) {
+            root.clear();
+        }
+    }
+
+    /**
+     * Interface of automation objects, identified by the path of members they were obtained from.
+     * Types are canonical, there is one object per path.
+     */
+    static final class Type {
+        private static final Type[] NO_MEMBERS = new Type[0];
+
+        private final String path;
+        // DISPIDs by member name as it was called and by lower case name
+        private final ConcurrentHashMap<String, Integer> dispIds = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Integer> dispIdsByKey = new ConcurrentHashMap<>();
+        // types returned by members, indexed by the number of arguments. Arrays are replaced, never modified.
+        private final ConcurrentHashMap<String, Type[]> members = new ConcurrentHashMap<>();
+
+        private Type(String path) {
+            this.path = path;
+        }
+
+        /**
+         * @param name member name
+         * @param argCount number of arguments the member is called with
+         * @return type of the object returned by the member
+         */
+        Type member(String name, int argCount) {
+            Type[] byArgCount = members.getOrDefault(name, NO_MEMBERS);
+            if (argCount < byArgCount.length && byArgCount[argCount] != null) {
+                return byArgCount[argCount];
+            }
+            return addMember(name, argCount);
+        }
+
+        private synchronized Type addMember(String name, int argCount) {
+            Type[] byArgCount = members.getOrDefault(name, NO_MEMBERS);
+            if (argCount < byArgCount.length && byArgCount[argCount] != null) {
+                return byArgCount[argCount];
+            }
+            Type[] grown = Arrays.copyOf(byArgCount, Math.max(byArgCount.length, argCount + 1));
+            grown[argCount] = new Type(path + "." + name + "/" + argCount);
+            members.put(name, grown);
+            return grown[argCount];
+        }
+
+        private int size() {
+            int size = dispIdsByKey.size();
+            for (Type[] byArgCount : members.values()) {
+                for (Type member : byArgCount) {
+                    if (member != null) {
+                        size += member.size();
+                    }
+                }
+            }
+            return size;
+        }
+
+        private void clear() {
+            dispIds.clear();
+            dispIdsByKey.clear();
+            for (Type[] byArgCount : members.values()) {
+                for (Type member : byArgCount) {
+                    if (member != null) {
+                        member.clear();
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return path like "Excel.Application.Workbooks/0"
+         */
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
+}
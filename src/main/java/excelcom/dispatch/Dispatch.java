@@ -0,0 +1,41 @@
+package excelcom.dispatch;
+
+/**
+ * A late bound automation object like an excel Application, Worksheet or Range.
+ * All wrappers in excelcom.api talk to excel through this interface only, so the backend can be swapped,
+ * e.g. for a {@link SimulatedExcel} when no excel installation is available.
+ *
+ * Arguments and results are plain java objects: String, Double, Integer, Boolean, Date, null (empty)
+ * and Dispatch for automation objects. Multiple cell values are passed as Object[][] (row-major, [row][column])
+ * or {@link TypedBlock} and returned as {@link CellMatrix}, which must be closed by the caller.
+ */
+public interface Dispatch {
+
+    /**
+     * Gets a property, optionally parametrized (e.g. Range("A1"))
+     * @param name name of the property
+     * @param args arguments of the property
+     * @return value of the property
+     */
+    Object get(String name, Object... args);
+
+    /**
+     * Sets a property. The last argument is the value to be set, the others are parameters of the property.
+     * @param name name of the property
+     * @param args parameters followed by the value
+     */
+    void put(String name, Object... args);
+
+    /**
+     * Calls a method
+     * @param name name of the method
+     * @param args arguments of the method
+     * @return return value of the method, null if it has none
+     */
+    Object call(String name, Object... args);
+
+    /**
+     * Releases the underlying automation object. The dispatch must not be used afterwards.
+     */
+    void release();
+}
@@ -0,0 +1,57 @@
+package excelcom.dispatch;
+
+/**
+ * Base of the decorators which forward every call to an underlying dispatch. Returned automation objects are wrapped
+ * in a decorator of the same kind by {@link #wrap(Dispatch)}, arguments wrapped by the same kind of decorator are
+ * unwrapped before they are passed to the underlying object.
+ */
+abstract class ForwardingDispatch implements Dispatch {
+
+    final Dispatch dispatch;
+
+    ForwardingDispatch(Dispatch dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    /**
+     * @param result automation object returned by the underlying dispatch
+     * @return decorated object
+     */
+    abstract Dispatch wrap(Dispatch result);
+
+    public Object get(String name, Object... args) {
+        return wrapResult(dispatch.get(name, unwrap(args)));
+    }
+
+    public void put(String name, Object... args) {
+        dispatch.put(name, unwrap(args));
+    }
+
+    public Object call(String name, Object... args) {
+        return wrapResult(dispatch.call(name, unwrap(args)));
+    }
+
+    public void release() {
+        dispatch.release();
+    }
+
+    final Object wrapResult(Object result) {
+        return result instanceof Dispatch ? wrap((Dispatch) result) : result;
+    }
+
+    final Object[] unwrap(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] unwrapped = args;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] != null && args[i].getClass() == getClass()) {
+                if (unwrapped == args) {
+                    unwrapped = args.clone();
+                }
+                unwrapped[i] = ((ForwardingDispatch) args[i]).dispatch;
+            }
+        }
+        return unwrapped;
+    }
+}
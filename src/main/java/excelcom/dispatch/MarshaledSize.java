@@ -0,0 +1,61 @@
+package excelcom.dispatch;
+
+/**
+ * Estimates the size of multiple cell values when they are marshaled as SAFEARRAY, used to bound buffers and
+ * to report the transferred bytes
+ */
+public final class MarshaledSize {
+    // estimated size of a VARIANT in a SAFEARRAY on 64 bit and of one character of a BSTR
+    private static final int BYTES_PER_CELL = 24;
+    private static final int BYTES_PER_CHAR = 2;
+
+    private MarshaledSize() {
+    }
+
+    /**
+     * @param row cells of one row
+     * @return estimated size of the row as VARIANTs
+     */
+    public static long ofRow(Object[] row) {
+        long bytes = (long) row.length * BYTES_PER_CELL;
+        for (Object value : row) {
+            if (value instanceof String) {
+                bytes += (long) ((String) value).length() * BYTES_PER_CHAR;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @param value argument or result of a dispatch
+     * @return estimated size of a multiple cell value, 0 for other values
+     */
+    public static long of(Object value) {
+        if (value instanceof Object[][]) {
+            long bytes = 0;
+            for (Object[] row : (Object[][]) value) {
+                bytes += ofRow(row);
+            }
+            return bytes;
+        } else if (value instanceof TypedBlock) {
+            TypedBlock block = (TypedBlock) value;
+            long cells = (long) block.getRowCount() * block.getColumnCount();
+            switch (block.getType()) {
+                case DOUBLE:
+                    return cells * 8;
+                case BOOLEAN:
+                    return cells * 2;
+                default:
+                    long bytes = cells * 8;
+                    for (String s : block.getStrings()) {
+                        bytes += s == null ? 0 : (long) s.length() * BYTES_PER_CHAR;
+                    }
+                    return bytes;
+            }
+        } else if (value instanceof CellMatrix) {
+            // strings are not decoded here, only the VARIANTs are counted
+            return (long) ((CellMatrix) value).getRowCount() * ((CellMatrix) value).getColumnCount() * BYTES_PER_CELL;
+        }
+        return 0;
+    }
+}
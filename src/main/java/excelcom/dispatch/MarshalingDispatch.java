@@ -0,0 +1,53 @@
+package excelcom.dispatch;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executes every call of a dispatch on a {@link ComThread}. Returned automation objects are marshaled as well.
+ */
+class MarshalingDispatch extends ForwardingDispatch {
+
+    private final ComThread thread;
+
+    MarshalingDispatch(ComThread thread, Dispatch dispatch) {
+        super(dispatch);
+        this.thread = thread;
+    }
+
+    Dispatch wrap(Dispatch result) {
+        return new MarshalingDispatch(thread, result);
+    }
+
+    public Object get(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        return wrapResult(thread.call(() -> dispatch.get(name, unwrapped)));
+    }
+
+    public void put(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        thread.call(() -> {
+            dispatch.put(name, unwrapped);
+            return null;
+        });
+    }
+
+    public Object call(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        return wrapResult(thread.call(() -> dispatch.call(name, unwrapped)));
+    }
+
+    /**
+     * Releases the object on the COM thread. Does nothing after the thread was shut down, the objects were
+     * released when COM was uninitialized.
+     */
+    public void release() {
+        try {
+            thread.call(() -> {
+                dispatch.release();
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            // shut down, e.g. a ComScope closed after quit
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package excelcom.dispatch;
+
+/**
+ * Records every call of a dispatch in {@link CallMetrics}. Returned automation objects are measured as well.
+ */
+class MeteredDispatch extends ForwardingDispatch {
+    private final CallMetrics metrics;
+
+    MeteredDispatch(CallMetrics metrics, Dispatch dispatch) {
+        super(dispatch);
+        this.metrics = metrics;
+    }
+
+    Dispatch wrap(Dispatch result) {
+        return new MeteredDispatch(metrics, result);
+    }
+
+    public Object get(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        if (!metrics.isEnabled()) {
+            return wrapResult(dispatch.get(name, unwrapped));
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        Object result = null;
+        try {
+            result = dispatch.get(name, unwrapped);
+            failed = false;
+            return wrapResult(result);
+        } finally {
+            metrics.record('g', name, System.nanoTime() - start, MarshaledSize.of(result), failed);
+        }
+    }
+
+    public void put(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        if (!metrics.isEnabled()) {
+            dispatch.put(name, unwrapped);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            dispatch.put(name, unwrapped);
+            failed = false;
+        } finally {
+            long bytes = args != null && args.length > 0 ? MarshaledSize.of(args[args.length - 1]) : 0;
+            metrics.record('p', name, System.nanoTime() - start, bytes, failed);
+        }
+    }
+
+    public Object call(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        if (!metrics.isEnabled()) {
+            return wrapResult(dispatch.call(name, unwrapped));
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        Object result = null;
+        try {
+            result = dispatch.call(name, unwrapped);
+            failed = false;
+            return wrapResult(result);
+        } finally {
+            metrics.record('c', name, System.nanoTime() - start, MarshaledSize.of(result), failed);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package excelcom.dispatch;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.OaIdl;
+import com.sun.jna.platform.win32.Variant;
+import com.sun.jna.platform.win32.WTypes;
+import com.sun.jna.platform.win32.WinDef;
+
+import java.util.TimeZone;
+
+/**
+ * CellMatrix backed by a two dimensional SAFEARRAY of VARIANTs as returned by Range.Value.
+ * The array data is locked once and each VARIANT is decoded in place when a cell is accessed.
+ * Excel stores the values column by column, the transposition is done by the index calculation.
+ */
+class SafeArrayMatrix extends CellMatrix {
+    // offset of the value inside a VARIANT, after vt and three reserved words
+    private static final int VALUE_OFFSET = 8;
+    // excel returns currencies as 64 bit integers scaled by 10000
+    private static final double CURRENCY_SCALE = 10000;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    // days between the excel epoch 1899-12-30 and 1970-01-01
+    private static final double EPOCH_DAYS = 25569;
+
+    private final OaIdl.SAFEARRAY sa;
+    private final int rowCount;
+    private final int columnCount;
+    private final long elementSize;
+    private Pointer data;
+
+    /**
+     * @param sa SAFEARRAY of VARIANTs with the dimensions (row, column). Destroyed when the matrix is closed.
+     */
+    SafeArrayMatrix(OaIdl.SAFEARRAY sa) {
+        this.sa = sa;
+        // rgsabound holds the bounds in reversed order, the last dimension (columns) comes first
+        this.columnCount = sa.rgsabound[0].cElements.intValue();
+        this.rowCount = sa.rgsabound[1].cElements.intValue();
+        this.elementSize = sa.getElemsize();
+        this.data = sa.accessData();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    private long offset(int row, int column) {
+        if (data == null) {
+            throw new IllegalStateException("matrix is closed");
+        }
+        if (row < 0 || row >= rowCount || column < 0 || column >= columnCount) {
+            throw new IndexOutOfBoundsException("cell [" + row + ", " + column + "] is outside of " + rowCount + "x" + columnCount);
+        }
+        return ((long) column * rowCount + row) * elementSize;
+    }
+
+    private int varType(long offset) {
+        return data.getShort(offset) & 0xFFFF;
+    }
+
+    public Type getType(int row, int column) {
+        switch (varType(offset(row, column))) {
+            case Variant.VT_EMPTY:
+            case Variant.VT_NULL:
+                return Type.EMPTY;
+            case Variant.VT_R8:
+            case Variant.VT_R4:
+            case Variant.VT_I2:
+            case Variant.VT_I4:
+            case Variant.VT_INT:
+            case Variant.VT_CY:
+                return Type.NUMBER;
+            case Variant.VT_BSTR:
+                return Type.STRING;
+            case Variant.VT_BOOL:
+                return Type.BOOLEAN;
+            case Variant.VT_DATE:
+                return Type.DATE;
+            case Variant.VT_ERROR:
+                return Type.ERROR;
+            default:
+                return Type.OTHER;
+        }
+    }
+
+    public double getDouble(int row, int column) {
+        long offset = offset(row, column);
+        switch (varType(offset)) {
+            case Variant.VT_R8:
+                return data.getDouble(offset + VALUE_OFFSET);
+            case Variant.VT_R4:
+                return data.getFloat(offset + VALUE_OFFSET);
+            case Variant.VT_I2:
+                return data.getShort(offset + VALUE_OFFSET);
+            case Variant.VT_I4:
+            case Variant.VT_INT:
+                return data.getInt(offset + VALUE_OFFSET);
+            case Variant.VT_CY:
+                return data.getLong(offset + VALUE_OFFSET) / CURRENCY_SCALE;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    public String getString(int row, int column) {
+        long offset = offset(row, column);
+        if (varType(offset) != Variant.VT_BSTR) {
+            return null;
+        }
+        Pointer bstr = data.getPointer(offset + VALUE_OFFSET);
+        return bstr == null ? "" : new WTypes.BSTR(bstr).getValue();
+    }
+
+    public long getEpochMillis(int row, int column) {
+        long offset = offset(row, column);
+        if (varType(offset) != Variant.VT_DATE) {
+            return Long.MIN_VALUE;
+        }
+        double date = data.getDouble(offset + VALUE_OFFSET);
+        // negative dates count the days backwards but the time of day forwards, e.g. -1.25 is 1899-12-29 06:00
+        double days = date < 0 ? Math.ceil(date) + (Math.ceil(date) - date) : date;
+        long localMillis = Math.round((days - EPOCH_DAYS) * MILLIS_PER_DAY);
+        TimeZone timeZone = TimeZone.getDefault();
+        return localMillis - timeZone.getOffset(localMillis - timeZone.getOffset(localMillis));
+    }
+
+    public Object get(int row, int column) {
+        long offset = offset(row, column);
+        switch (varType(offset)) {
+            case Variant.VT_EMPTY:
+            case Variant.VT_NULL:
+                return null;
+            case Variant.VT_R8:
+            case Variant.VT_R4:
+            case Variant.VT_CY:
+                return getDouble(row, column);
+            case Variant.VT_I2:
+            case Variant.VT_I4:
+            case Variant.VT_INT:
+                return (int) getDouble(row, column);
+            case Variant.VT_BSTR:
+                return getString(row, column);
+            case Variant.VT_BOOL:
+                return data.getShort(offset + VALUE_OFFSET) != 0;
+            case Variant.VT_DATE:
+                return new OaIdl.DATE(data.getDouble(offset + VALUE_OFFSET)).getAsJavaDate();
+            case Variant.VT_ERROR:
+                return new WinDef.SCODE(data.getInt(offset + VALUE_OFFSET) & 0xFFFFFFFFL);
+            default:
+                Variant.VARIANT variant = new Variant.VARIANT(data.share(offset));
+                variant.read();
+                return variant.getValue();
+        }
+    }
+
+    /**
+     * Unlocks and destroys the SAFEARRAY
+     */
+    public void close() {
+        if (data != null) {
+            data = null;
+            sa.unaccessData();
+            sa.destroy();
+        }
+    }
+}
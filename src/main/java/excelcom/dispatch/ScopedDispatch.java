@@ -0,0 +1,59 @@
+package excelcom.dispatch;
+
+import com.sun.jna.platform.win32.COM.COMException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registers returned automation objects in the {@link ComScope} of the current thread.
+ */
+class ScopedDispatch extends ForwardingDispatch {
+
+    // false for the dispatch passed to ComScope.track, which is not counted as live object
+    private final boolean acquired;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    ScopedDispatch(Dispatch dispatch, boolean acquired) {
+        super(dispatch);
+        this.acquired = acquired;
+    }
+
+    Dispatch wrap(Dispatch result) {
+        ScopedDispatch scoped = new ScopedDispatch(result, true);
+        ComScope.acquired(scoped);
+        return scoped;
+    }
+
+    public Object get(String name, Object... args) {
+        checkReleased(name);
+        return super.get(name, args);
+    }
+
+    public void put(String name, Object... args) {
+        checkReleased(name);
+        super.put(name, args);
+    }
+
+    public Object call(String name, Object... args) {
+        checkReleased(name);
+        return super.call(name, args);
+    }
+
+    /**
+     * Releases the underlying object once, further calls do nothing
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            if (acquired) {
+                ComScope.released();
+            }
+            dispatch.release();
+        }
+    }
+
+    private void checkReleased(String name) {
+        if (released.get()) {
+            throw new COMException("Object was released before calling " + name);
+        }
+    }
+}
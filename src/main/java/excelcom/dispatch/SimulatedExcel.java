@@ -0,0 +1,791 @@
+package excelcom.dispatch;
+
+import com.sun.jna.platform.win32.COM.COMException;
+import excelcom.util.AddressParser;
+import excelcom.util.Util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory simulation of an excel Application. Can be used with {@code ExcelConnection.connect(Dispatch)} to
+ * benchmark and test code on machines without excel.
+ *
+ * Supports the members used by excelcom.api: Workbooks, Worksheets, Range, Value, Formula, Address, UsedRange, Find,
+ * FindNext, ColorIndex of Interior, Font and Borders and comments. Formulas are stored as text and never calculated.
+ * Files are neither read nor written, an opened workbook starts with one empty worksheet.
+ *
+ * Every call can be delayed to simulate the cost of a cross-process COM round trip,
+ * see {@link #setCallLatency(long, TimeUnit)} and {@link #setCellLatency(long, TimeUnit)}.
+ * Calls are serialized like in a real excel instance.
+ */
+public class SimulatedExcel implements Dispatch {
+
+    static final int MAX_ROWS = AddressParser.MAX_ROWS;
+    static final int MAX_COLUMNS = AddressParser.MAX_COLUMNS;
+    static final int MAX_ADDRESS_LENGTH = 255;
+    static final int XL_NONE = -4142;
+    static final int XL_CALCULATION_AUTOMATIC = -4105;
+    static final int XL_BY_COLUMNS = 2;
+    static final int XL_PREVIOUS = 2;
+    static final int XL_WHOLE = 1;
+
+    private volatile long callLatencyNanos = 0;
+    private volatile long cellLatencyNanos = 0;
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong releaseCount = new AtomicLong();
+
+    private final Application application = new Application();
+    private final Map<String, Object> properties = new LinkedHashMap<String, Object>();
+    // addresses of defined names by lower case name
+    private final Map<String, String> names = new HashMap<String, String>();
+    private final List<SimWorkbook> workbooks = new ArrayList<SimWorkbook>();
+    private SimWorkbook activeWorkbook = null;
+    private int workbookCounter = 0;
+    private boolean quit = false;
+    private boolean unavailable = false;
+
+    public SimulatedExcel() {
+        properties.put("Version", "16.0");
+        properties.put("Visible", false);
+        properties.put("DisplayAlerts", true);
+        properties.put("ScreenUpdating", true);
+        properties.put("EnableEvents", true);
+        properties.put("Interactive", true);
+        properties.put("Calculation", XL_CALCULATION_AUTOMATIC);
+        properties.put("StatusBar", false);
+    }
+
+    /**
+     * Sets the latency added to every call
+     * @param latency latency per call
+     * @param unit unit of latency
+     * @return this
+     */
+    public SimulatedExcel setCallLatency(long latency, TimeUnit unit) {
+        this.callLatencyNanos = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * Sets the latency added for every cell transferred in a multiple cell value
+     * @param latency latency per cell
+     * @param unit unit of latency
+     * @return this
+     */
+    public SimulatedExcel setCellLatency(long latency, TimeUnit unit) {
+        this.cellLatencyNanos = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * @return number of calls made to any object of this instance
+     */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /**
+     * Resets the call counter to 0
+     */
+    public void resetCallCount() {
+        callCount.set(0);
+    }
+
+    /**
+     * @return number of objects of this instance which were released
+     */
+    public long getReleaseCount() {
+        return releaseCount.get();
+    }
+
+    /**
+     * @return true if Quit was called. Any further call fails like on a disconnected excel process.
+     */
+    public synchronized boolean isQuit() {
+        return quit;
+    }
+
+    /**
+     * Lets every call fail like on a disconnected excel process until it's made available again
+     * @param unavailable true to fail calls
+     * @return this
+     */
+    public synchronized SimulatedExcel setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+        return this;
+    }
+
+    /**
+     * Gets the current application properties like ScreenUpdating or Calculation
+     * @return copy of the application properties
+     */
+    public synchronized Map<String, Object> getApplicationProperties() {
+        return new HashMap<String, Object>(properties);
+    }
+
+    /**
+     * Defines a name, which can be used as address of a range on every worksheet
+     * @param name name like "Total"
+     * @param address address the name refers to, e.g. "B2" or "A1:C3"
+     * @return this
+     */
+    public synchronized SimulatedExcel defineName(String name, String address) {
+        names.put(name.toLowerCase(Locale.ROOT), address);
+        return this;
+    }
+
+    public Object get(String name, Object... args) {
+        return application.get(name, args);
+    }
+
+    public void put(String name, Object... args) {
+        application.put(name, args);
+    }
+
+    public Object call(String name, Object... args) {
+        return application.call(name, args);
+    }
+
+    public void release() {
+    }
+
+    /**
+     * Busy waits for the configured latency, sleeping is too coarse for latencies of a few microseconds
+     * @param cells number of cells transferred
+     */
+    private void delay(long cells) {
+        long nanos = callLatencyNanos + cells * cellLatencyNanos;
+        if (nanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + nanos;
+        if (nanos > TimeUnit.MILLISECONDS.toNanos(2)) {
+            LockSupport.parkNanos(nanos - TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        while (System.nanoTime() - deadline < 0) {
+            // spin
+        }
+    }
+
+    private static long countCells(Object o) {
+        if (o instanceof Object[][]) {
+            long cells = 0;
+            for (Object[] row : (Object[][]) o) {
+                cells += row.length;
+            }
+            return cells;
+        } else if (o instanceof CellMatrix) {
+            return (long) ((CellMatrix) o).getRowCount() * ((CellMatrix) o).getColumnCount();
+        } else if (o instanceof TypedBlock) {
+            return (long) ((TypedBlock) o).getRowCount() * ((TypedBlock) o).getColumnCount();
+        }
+        return 0;
+    }
+
+    private static boolean is(String name, String member) {
+        return name.equalsIgnoreCase(member);
+    }
+
+    private static COMException unknownName(String name) {
+        return new COMException("Unknown name: " + name);
+    }
+
+    private static Object arg(Object[] args, int index, Object defaultValue) {
+        return args.length > index && args[index] != null ? args[index] : defaultValue;
+    }
+
+    /**
+     * Converts a value to the representation excel would store. Numbers become doubles and empty strings clear the cell.
+     */
+    private static Object toCellValue(Object o) {
+        if (o == null || o instanceof Double || o instanceof Boolean || o instanceof Date) {
+            return o;
+        } else if (o instanceof String) {
+            return ((String) o).length() == 0 ? null : o;
+        } else if (o instanceof Number) {
+            return ((Number) o).doubleValue();
+        }
+        throw new COMException("unknown type when creating variant from object: " + o.getClass());
+    }
+
+    /**
+     * Text of a value as shown in a cell, used for searching
+     */
+    private static String toText(Object value) {
+        if (value instanceof Double) {
+            return Util.numberToText((Double) value);
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value) ? "TRUE" : "FALSE";
+        }
+        return value.toString();
+    }
+
+    /**
+     * Parses an address, see {@link AddressParser}
+     * @return 1-based bounds [firstRow, firstColumn, lastRow, lastColumn]
+     */
+    static int[] parseAddress(String address) {
+        int[] bounds = new int[4];
+        try {
+            AddressParser.parse(address, bounds);
+        } catch (IllegalArgumentException e) {
+            throw new COMException("Invalid range: " + address);
+        }
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i]++;
+        }
+        return bounds;
+    }
+
+    /* *****************************
+     * Simulated automation objects
+     * *****************************/
+
+    /**
+     * Base of all simulated objects. Counts and delays calls and serializes them on the excel instance.
+     */
+    private abstract class Node implements Dispatch {
+
+        public Object get(String name, Object... args) {
+            return dispatch(name, args);
+        }
+
+        public Object call(String name, Object... args) {
+            return dispatch(name, args);
+        }
+
+        public void put(String name, Object... args) {
+            if (args.length == 0) {
+                throw new COMException("No value given for property " + name);
+            }
+            synchronized (SimulatedExcel.this) {
+                checkRunning();
+                callCount.incrementAndGet();
+                delay(countCells(args[args.length - 1]));
+                assign(name, args);
+            }
+        }
+
+        public void release() {
+            releaseCount.incrementAndGet();
+        }
+
+        private Object dispatch(String name, Object[] args) {
+            synchronized (SimulatedExcel.this) {
+                checkRunning();
+                callCount.incrementAndGet();
+                Object result = invoke(name, args);
+                delay(countCells(result));
+                return result;
+            }
+        }
+
+        private void checkRunning() {
+            if (quit || unavailable) {
+                throw new COMException("The RPC server is unavailable");
+            }
+        }
+
+        /**
+         * Gets a property or calls a method, excel doesn't distinguish between them for most members
+         */
+        abstract Object invoke(String name, Object[] args);
+
+        /**
+         * Sets a property, the value is the last argument
+         */
+        void assign(String name, Object[] args) {
+            throw unknownName(name);
+        }
+    }
+
+    private class Application extends Node {
+        Object invoke(String name, Object[] args) {
+            if (is(name, "Workbooks")) {
+                return new WorkbooksNode();
+            } else if (is(name, "ActiveWorkbook")) {
+                return activeWorkbook;
+            } else if (is(name, "Quit")) {
+                workbooks.clear();
+                activeWorkbook = null;
+                quit = true;
+                return null;
+            } else if (property(name) != null) {
+                return properties.get(property(name));
+            }
+            throw unknownName(name);
+        }
+
+        void assign(String name, Object[] args) {
+            if (property(name) == null || is(name, "Version")) {
+                throw unknownName(name);
+            }
+            properties.put(property(name), args[args.length - 1]);
+        }
+
+        /**
+         * @return name of the property as stored or null if there is no such property
+         */
+        private String property(String name) {
+            for (String key : properties.keySet()) {
+                if (is(name, key)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    }
+
+    private class WorkbooksNode extends Node {
+        Object invoke(String name, Object[] args) {
+            if (is(name, "Add")) {
+                return addWorkbook("Book" + (++workbookCounter), null);
+            } else if (is(name, "Open")) {
+                String path = (String) arg(args, 0, null);
+                if (path == null) {
+                    throw new COMException("No file name given");
+                }
+                for (SimWorkbook wb : workbooks) {
+                    if (path.equals(wb.path)) {
+                        activeWorkbook = wb;
+                        return wb;
+                    }
+                }
+                return addWorkbook(new File(path).getName(), path);
+            } else if (is(name, "Count")) {
+                return workbooks.size();
+            } else if (is(name, "Item")) {
+                Object key = arg(args, 0, 0);
+                if (key instanceof Number) {
+                    return workbooks.get(((Number) key).intValue() - 1);
+                }
+                for (SimWorkbook wb : workbooks) {
+                    if (wb.name.equalsIgnoreCase(String.valueOf(key))) {
+                        return wb;
+                    }
+                }
+                throw new COMException("Subscript out of range: " + key);
+            }
+            throw unknownName(name);
+        }
+
+        private SimWorkbook addWorkbook(String name, String path) {
+            SimWorkbook wb = new SimWorkbook(name, path);
+            workbooks.add(wb);
+            activeWorkbook = wb;
+            return wb;
+        }
+    }
+
+    private class SimWorkbook extends Node {
+        private String name;
+        private String path;
+        private final List<SimWorksheet> sheets = new ArrayList<SimWorksheet>();
+        private int sheetCounter = 0;
+
+        SimWorkbook(String name, String path) {
+            this.name = name;
+            this.path = path;
+            sheets.add(new SimWorksheet(this, "Sheet" + (++sheetCounter)));
+        }
+
+        Object invoke(String name, Object[] args) {
+            if (is(name, "Name")) {
+                return this.name;
+            } else if (is(name, "Worksheets") || is(name, "Sheets")) {
+                return args.length == 0 ? new WorksheetsNode(this) : sheet(args[0]);
+            } else if (is(name, "Save")) {
+                return null;
+            } else if (is(name, "SaveAs")) {
+                this.path = (String) arg(args, 0, null);
+                this.name = new File(this.path).getName();
+                return null;
+            } else if (is(name, "Close")) {
+                workbooks.remove(this);
+                if (activeWorkbook == this) {
+                    activeWorkbook = workbooks.isEmpty() ? null : workbooks.get(workbooks.size() - 1);
+                }
+                return null;
+            }
+            throw unknownName(name);
+        }
+
+        SimWorksheet sheet(Object key) {
+            if (key instanceof Number) {
+                int index = ((Number) key).intValue();
+                if (index >= 1 && index <= sheets.size()) {
+                    return sheets.get(index - 1);
+                }
+            } else {
+                for (SimWorksheet ws : sheets) {
+                    if (ws.name.equalsIgnoreCase(String.valueOf(key))) {
+                        return ws;
+                    }
+                }
+            }
+            throw new COMException("Subscript out of range: " + key);
+        }
+    }
+
+    private class WorksheetsNode extends Node {
+        private final SimWorkbook workbook;
+
+        WorksheetsNode(SimWorkbook workbook) {
+            this.workbook = workbook;
+        }
+
+        Object invoke(String name, Object[] args) {
+            if (is(name, "Add")) {
+                SimWorksheet ws = new SimWorksheet(workbook, "Sheet" + (++workbook.sheetCounter));
+                workbook.sheets.add(0, ws);
+                return ws;
+            } else if (is(name, "Count")) {
+                return workbook.sheets.size();
+            } else if (is(name, "Item")) {
+                return workbook.sheet(arg(args, 0, null));
+            }
+            throw unknownName(name);
+        }
+    }
+
+    /**
+     * A cell with content, formatting or a comment
+     */
+    private static class Cell {
+        Object value;
+        int interiorColor = XL_NONE;
+        int fontColor = 1;
+        int borderColor = XL_NONE;
+        String comment;
+    }
+
+    private static final Cell EMPTY_CELL = new Cell();
+
+    private class SimWorksheet extends Node {
+        private final SimWorkbook workbook;
+        private String name;
+        private Cell[][] rows = new Cell[16][];
+        // like excel's UsedRange these bounds only grow, they are never shrunk when cells are cleared
+        private int usedFirstRow = 0, usedFirstColumn = 0, usedLastRow = 0, usedLastColumn = 0;
+        // options of the last Find for FindNext
+        private String findWhat = "";
+        private boolean findWhole = false, findByColumns = false, findMatchCase = false;
+
+        SimWorksheet(SimWorkbook workbook, String name) {
+            this.workbook = workbook;
+            this.name = name;
+        }
+
+        Object invoke(String name, Object[] args) {
+            if (is(name, "Name")) {
+                return this.name;
+            } else if (is(name, "Range")) {
+                String address = String.valueOf(arg(args, 0, ""));
+                if (address.length() > MAX_ADDRESS_LENGTH) {
+                    throw new COMException("Method 'Range' of object '_Worksheet' failed");
+                }
+                String[] parts = address.split(",");
+                int[][] areas = new int[parts.length][];
+                for (int i = 0; i < parts.length; i++) {
+                    String defined = names.get(parts[i].toLowerCase(Locale.ROOT));
+                    areas[i] = parseAddress(defined == null ? parts[i] : defined);
+                }
+                return new SimRange(this, areas);
+            } else if (is(name, "UsedRange")) {
+                return usedFirstRow == 0 ? new SimRange(this, 1, 1, 1, 1)
+                        : new SimRange(this, usedFirstRow, usedFirstColumn, usedLastRow, usedLastColumn);
+            } else if (is(name, "Delete")) {
+                if (workbook.sheets.size() == 1) {
+                    throw new COMException("A workbook must contain at least one visible worksheet");
+                }
+                workbook.sheets.remove(this);
+                return true;
+            }
+            throw unknownName(name);
+        }
+
+        void assign(String name, Object[] args) {
+            if (!is(name, "Name")) {
+                throw unknownName(name);
+            }
+            String newName = (String) args[args.length - 1];
+            for (SimWorksheet ws : workbook.sheets) {
+                if (ws != this && ws.name.equalsIgnoreCase(newName)) {
+                    throw new COMException("Cannot rename a sheet to the same name as another sheet");
+                }
+            }
+            this.name = newName;
+        }
+
+        Cell cell(int row, int column) {
+            if (row >= rows.length || rows[row] == null || column >= rows[row].length || rows[row][column] == null) {
+                return EMPTY_CELL;
+            }
+            return rows[row][column];
+        }
+
+        /**
+         * Gets the cell for modification, creating it if necessary
+         */
+        Cell editCell(int row, int column) {
+            if (row >= rows.length) {
+                Cell[][] grown = new Cell[Math.max(row + 1, Math.min(rows.length * 2, MAX_ROWS + 1))][];
+                System.arraycopy(rows, 0, grown, 0, rows.length);
+                rows = grown;
+            }
+            Cell[] cells = rows[row];
+            if (cells == null || column >= cells.length) {
+                Cell[] grown = new Cell[Math.max(column + 1, cells == null ? 8 : Math.min(cells.length * 2, MAX_COLUMNS + 1))];
+                if (cells != null) {
+                    System.arraycopy(cells, 0, grown, 0, cells.length);
+                }
+                rows[row] = cells = grown;
+            }
+            if (cells[column] == null) {
+                cells[column] = new Cell();
+            }
+            if (usedFirstRow == 0) {
+                usedFirstRow = usedLastRow = row;
+                usedFirstColumn = usedLastColumn = column;
+            } else {
+                usedFirstRow = Math.min(usedFirstRow, row);
+                usedLastRow = Math.max(usedLastRow, row);
+                usedFirstColumn = Math.min(usedFirstColumn, column);
+                usedLastColumn = Math.max(usedLastColumn, column);
+            }
+            return cells[column];
+        }
+
+        /**
+         * Searches range for the next matching cell after the given cell
+         * @return matching cell or null
+         */
+        SimRange find(SimRange range, int afterRow, int afterColumn, boolean previous) {
+            int rowCount = range.lastRow - range.firstRow + 1;
+            int columnCount = range.lastColumn - range.firstColumn + 1;
+            long total = (long) rowCount * columnCount;
+            long start = -1;
+            if (afterRow >= range.firstRow && afterRow <= range.lastRow && afterColumn >= range.firstColumn && afterColumn <= range.lastColumn) {
+                start = findByColumns ? (long) (afterColumn - range.firstColumn) * rowCount + (afterRow - range.firstRow)
+                        : (long) (afterRow - range.firstRow) * columnCount + (afterColumn - range.firstColumn);
+            } else if (previous) {
+                start = 0;
+            }
+            for (long k = 1; k <= total; k++) {
+                long index = ((start + (previous ? -k : k)) % total + total) % total;
+                int row, column;
+                if (findByColumns) {
+                    column = range.firstColumn + (int) (index / rowCount);
+                    row = range.firstRow + (int) (index % rowCount);
+                } else {
+                    row = range.firstRow + (int) (index / columnCount);
+                    column = range.firstColumn + (int) (index % columnCount);
+                }
+                Object value = cell(row, column).value;
+                if (value != null && Util.matchesWildcard(findWhat, toText(value), findMatchCase, findWhole)) {
+                    return new SimRange(this, row, column, row, column);
+                }
+            }
+            return null;
+        }
+    }
+
+    private class SimRange extends Node {
+        private final SimWorksheet sheet;
+        // bounds of the first area, most members only use the first area like excel does
+        private final int firstRow, firstColumn, lastRow, lastColumn;
+        // bounds of all areas
+        private final int[][] areas;
+
+        SimRange(SimWorksheet sheet, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+            this(sheet, new int[][]{{firstRow, firstColumn, lastRow, lastColumn}});
+        }
+
+        SimRange(SimWorksheet sheet, int[][] areas) {
+            this.sheet = sheet;
+            this.firstRow = areas[0][0];
+            this.firstColumn = areas[0][1];
+            this.lastRow = areas[0][2];
+            this.lastColumn = areas[0][3];
+            this.areas = areas;
+        }
+
+        boolean isSingleCell() {
+            return firstRow == lastRow && firstColumn == lastColumn;
+        }
+
+        Object invoke(String name, Object[] args) {
+            if (is(name, "Value")) {
+                if (isSingleCell()) {
+                    return sheet.cell(firstRow, firstColumn).value;
+                }
+                Object[][] values = new Object[lastRow - firstRow + 1][lastColumn - firstColumn + 1];
+                for (int i = 0; i < values.length; i++) {
+                    for (int j = 0; j < values[i].length; j++) {
+                        values[i][j] = sheet.cell(firstRow + i, firstColumn + j).value;
+                    }
+                }
+                return CellMatrix.wrap(values);
+            } else if (is(name, "Formula")) {
+                // constants are returned as text, empty cells as empty string
+                Object[][] formulas = new Object[lastRow - firstRow + 1][lastColumn - firstColumn + 1];
+                for (int i = 0; i < formulas.length; i++) {
+                    for (int j = 0; j < formulas[i].length; j++) {
+                        Object value = sheet.cell(firstRow + i, firstColumn + j).value;
+                        formulas[i][j] = value == null ? "" : toText(value);
+                    }
+                }
+                return isSingleCell() ? formulas[0][0] : CellMatrix.wrap(formulas);
+            } else if (is(name, "Address")) {
+                return isSingleCell() ? Util.getColumnName(firstColumn) + firstRow
+                        : Util.boundsToRange(firstRow - 1, firstColumn - 1, lastRow - 1, lastColumn - 1);
+            } else if (is(name, "Row")) {
+                return firstRow;
+            } else if (is(name, "Column")) {
+                return firstColumn;
+            } else if (is(name, "Interior") || is(name, "Font") || is(name, "Borders")) {
+                return new SimPane(this, name);
+            } else if (is(name, "ClearComments")) {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        if (sheet.cell(row, column).comment != null) {
+                            sheet.editCell(row, column).comment = null;
+                        }
+                    }
+                }
+                return null;
+            } else if (is(name, "AddComment")) {
+                Cell cell = sheet.editCell(firstRow, firstColumn);
+                if (cell.comment != null) {
+                    throw new COMException("Cell already has a comment");
+                }
+                cell.comment = String.valueOf(arg(args, 0, ""));
+                return new SimComment(this);
+            } else if (is(name, "Comment")) {
+                return sheet.cell(firstRow, firstColumn).comment == null ? null : new SimComment(this);
+            } else if (is(name, "Find")) {
+                sheet.findWhat = String.valueOf(arg(args, 0, ""));
+                sheet.findWhole = ((Number) arg(args, 3, 2)).intValue() == XL_WHOLE;
+                sheet.findByColumns = ((Number) arg(args, 4, 1)).intValue() == XL_BY_COLUMNS;
+                sheet.findMatchCase = (Boolean) arg(args, 6, false);
+                boolean previous = ((Number) arg(args, 5, 1)).intValue() == XL_PREVIOUS;
+                SimRange after = (SimRange) arg(args, 1, null);
+                return after == null ? sheet.find(this, firstRow, firstColumn, previous)
+                        : sheet.find(this, after.firstRow, after.firstColumn, previous);
+            } else if (is(name, "FindNext") || is(name, "FindPrevious")) {
+                SimRange after = (SimRange) arg(args, 0, null);
+                return after == null ? sheet.find(this, firstRow, firstColumn, is(name, "FindPrevious"))
+                        : sheet.find(this, after.firstRow, after.firstColumn, is(name, "FindPrevious"));
+            }
+            throw unknownName(name);
+        }
+
+        void assign(String name, Object[] args) {
+            if (!is(name, "Value")) {
+                throw unknownName(name);
+            }
+            Object value = args[args.length - 1];
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    Object cellValue = value;
+                    if (value instanceof Object[][]) {
+                        // cells outside of the given matrix are cleared
+                        Object[][] matrix = (Object[][]) value;
+                        int i = row - firstRow, j = column - firstColumn;
+                        cellValue = i < matrix.length && j < matrix[i].length ? matrix[i][j] : null;
+                    } else if (value instanceof TypedBlock) {
+                        TypedBlock block = (TypedBlock) value;
+                        int i = row - firstRow, j = column - firstColumn;
+                        cellValue = i < block.getRowCount() && j < block.getColumnCount() ? block.get(i, j) : null;
+                    }
+                    cellValue = toCellValue(cellValue);
+                    if (cellValue != null || sheet.cell(row, column) != EMPTY_CELL) {
+                        sheet.editCell(row, column).value = cellValue;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Interior, Font or Borders of a range
+     */
+    private class SimPane extends Node {
+        private final SimRange range;
+        private final String type;
+
+        SimPane(SimRange range, String type) {
+            this.range = range;
+            this.type = type;
+        }
+
+        private int colorIndex(Cell cell) {
+            return is(type, "Interior") ? cell.interiorColor : is(type, "Font") ? cell.fontColor : cell.borderColor;
+        }
+
+        Object invoke(String name, Object[] args) {
+            if (!is(name, "ColorIndex")) {
+                throw unknownName(name);
+            }
+            int colorIndex = colorIndex(range.sheet.cell(range.firstRow, range.firstColumn));
+            for (int[] area : range.areas) {
+                for (int row = area[0]; row <= area[2]; row++) {
+                    for (int column = area[1]; column <= area[3]; column++) {
+                        if (colorIndex(range.sheet.cell(row, column)) != colorIndex) {
+                            // mixed colors are returned as VT_NULL
+                            return null;
+                        }
+                    }
+                }
+            }
+            return colorIndex;
+        }
+
+        void assign(String name, Object[] args) {
+            if (!is(name, "ColorIndex")) {
+                throw unknownName(name);
+            }
+            int colorIndex = ((Number) args[args.length - 1]).intValue();
+            for (int[] area : range.areas) {
+                for (int row = area[0]; row <= area[2]; row++) {
+                    for (int column = area[1]; column <= area[3]; column++) {
+                        Cell cell = range.sheet.editCell(row, column);
+                        if (is(type, "Interior")) {
+                            cell.interiorColor = colorIndex;
+                        } else if (is(type, "Font")) {
+                            cell.fontColor = colorIndex;
+                        } else {
+                            cell.borderColor = colorIndex;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private class SimComment extends Node {
+        private final SimRange range;
+
+        SimComment(SimRange range) {
+            this.range = range;
+        }
+
+        Object invoke(String name, Object[] args) {
+            if (is(name, "Text")) {
+                return range.sheet.cell(range.firstRow, range.firstColumn).comment;
+            }
+            throw unknownName(name);
+        }
+    }
+
+}
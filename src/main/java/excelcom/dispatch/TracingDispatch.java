@@ -0,0 +1,71 @@
+package excelcom.dispatch;
+
+/**
+ * Records every call of a dispatch as span in the {@link CallTracer}. Returned automation objects are traced as well.
+ */
+class TracingDispatch extends ForwardingDispatch {
+
+    private final CallTracer tracer;
+
+    TracingDispatch(CallTracer tracer, Dispatch dispatch) {
+        super(dispatch);
+        this.tracer = tracer;
+    }
+
+    Dispatch wrap(Dispatch result) {
+        return new TracingDispatch(tracer, result);
+    }
+
+    public Object get(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        if (!tracer.isEnabled()) {
+            return wrapResult(dispatch.get(name, unwrapped));
+        }
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = dispatch.get(name, unwrapped);
+            return wrapResult(result);
+        } finally {
+            tracer.record("dispatch", "get " + name, detail(args), start, MarshaledSize.of(result));
+        }
+    }
+
+    public void put(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        if (!tracer.isEnabled()) {
+            dispatch.put(name, unwrapped);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            dispatch.put(name, unwrapped);
+        } finally {
+            long bytes = args != null && args.length > 0 ? MarshaledSize.of(args[args.length - 1]) : 0;
+            // the last argument is the value, not a detail
+            tracer.record("dispatch", "put " + name, args != null && args.length > 1 ? detail(args) : null, start, bytes);
+        }
+    }
+
+    public Object call(String name, Object... args) {
+        Object[] unwrapped = unwrap(args);
+        if (!tracer.isEnabled()) {
+            return wrapResult(dispatch.call(name, unwrapped));
+        }
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = dispatch.call(name, unwrapped);
+            return wrapResult(result);
+        } finally {
+            tracer.record("dispatch", "call " + name, detail(args), start, MarshaledSize.of(result));
+        }
+    }
+
+    /**
+     * @return first argument if it's a String like the address of Range, otherwise null
+     */
+    private static String detail(Object[] args) {
+        return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+    }
+}
@@ -0,0 +1,111 @@
+package excelcom.dispatch;
+
+/**
+ * Block of cell values which all have the same type. Unlike Object[][] the values are neither boxed nor
+ * converted one by one, a {@link ComDispatch} copies them into a typed SAFEARRAY (VT_R8, VT_BOOL or VT_BSTR) at once.
+ *
+ * Values are stored column by column ([column * rowCount + row]), which is the memory layout of a SAFEARRAY
+ * of excel cell values. A single column can be passed without copying.
+ */
+public final class TypedBlock {
+
+    /**
+     * Type of the values in a block
+     */
+    public enum Type {
+        DOUBLE, BOOLEAN, STRING
+    }
+
+    private final Type type;
+    private final int rowCount;
+    private final int columnCount;
+    private final Object values;
+
+    private TypedBlock(Type type, int rowCount, int columnCount, Object values, int length) {
+        if (rowCount <= 0 || columnCount <= 0 || (long) rowCount * columnCount != length) {
+            throw new IllegalArgumentException("block of " + rowCount + "x" + columnCount + " cells can't hold " + length + " values");
+        }
+        this.type = type;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.values = values;
+    }
+
+    /**
+     * @param rowCount number of rows
+     * @param columnCount number of columns
+     * @param values values column by column, not copied
+     */
+    public static TypedBlock ofDoubles(int rowCount, int columnCount, double[] values) {
+        return new TypedBlock(Type.DOUBLE, rowCount, columnCount, values, values.length);
+    }
+
+    /**
+     * @see #ofDoubles(int, int, double[])
+     */
+    public static TypedBlock ofBooleans(int rowCount, int columnCount, boolean[] values) {
+        return new TypedBlock(Type.BOOLEAN, rowCount, columnCount, values, values.length);
+    }
+
+    /**
+     * @see #ofDoubles(int, int, double[])
+     * @param values values column by column, null and empty strings are empty cells
+     */
+    public static TypedBlock ofStrings(int rowCount, int columnCount, String[] values) {
+        return new TypedBlock(Type.STRING, rowCount, columnCount, values, values.length);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return values column by column
+     * @throws ClassCastException if it's not a block of doubles
+     */
+    public double[] getDoubles() {
+        return (double[]) values;
+    }
+
+    /**
+     * @return values column by column
+     * @throws ClassCastException if it's not a block of booleans
+     */
+    public boolean[] getBooleans() {
+        return (boolean[]) values;
+    }
+
+    /**
+     * @return values column by column
+     * @throws ClassCastException if it's not a block of strings
+     */
+    public String[] getStrings() {
+        return (String[]) values;
+    }
+
+    /**
+     * Gets one value boxed, meant for backends which store cells as objects
+     * @param row row index inside the block, 0-based
+     * @param column column index inside the block, 0-based
+     * @return Double, Boolean or String
+     */
+    public Object get(int row, int column) {
+        int index = column * rowCount + row;
+        switch (type) {
+            case DOUBLE:
+                return ((double[]) values)[index];
+            case BOOLEAN:
+                return ((boolean[]) values)[index];
+            default:
+                return ((String[]) values)[index];
+        }
+    }
+}
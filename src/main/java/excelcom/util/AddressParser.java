@@ -0,0 +1,297 @@
+package excelcom.util;
+
+/**
+ * Parses excel range addresses without allocating any objects. Supported are
+ * <ul>
+ *     <li>A1 references like "A1", "$B$2" or "A1:C3"</li>
+ *     <li>whole columns and rows like "A:C" or "3:7"</li>
+ *     <li>sheet qualified references like "Sheet1!A1" or "'Sheet 1'!A1:B2", the sheet is ignored</li>
+ *     <li>absolute R1C1 references like "R1C1" or "R1C1:R2C3". Parts which are valid A1 references are always
+ *     read as A1 reference, e.g. "C1" is column C and not the first column.</li>
+ * </ul>
+ * Bounds are 0-based like the index based methods of Worksheet. Other addresses, e.g. defined names like "Total",
+ * can only be resolved by excel, see {@link #sizeOf(CharSequence)}.
+ */
+public final class AddressParser {
+
+    public static final int MAX_ROWS = 1048576;
+    public static final int MAX_COLUMNS = 16384;
+
+    /**
+     * Size returned by {@link #sizeOf(CharSequence)} for addresses which are no references
+     */
+    public static final long UNKNOWN_SIZE = -1;
+
+    private static final long SINGLE_CELL = (1L << 32) | 1;
+    // error codes of parsePart, valid parts are never negative
+    private static final long INVALID = -1;
+    private static final long TOO_BIG = -2;
+    // error codes of skipSheet and indexOfColon
+    private static final int INVALID_INDEX = -2;
+
+    private AddressParser() {
+    }
+
+    /**
+     * Gets the size of a range
+     * @param address range to be parsed
+     * @return size packed into a long, use {@link #rows(long)} and {@link #columns(long)} to unpack it
+     * @throws IllegalArgumentException if the address is invalid
+     */
+    public static long parseSize(CharSequence address) throws IllegalArgumentException {
+        long size = sizeOf(address);
+        if (size == UNKNOWN_SIZE) {
+            throw invalid(address);
+        }
+        return size;
+    }
+
+    /**
+     * Gets the size of a range like {@link #parseSize(CharSequence)}, but accepts addresses which are no references,
+     * e.g. defined names, which have to be passed to excel as they are
+     * @param address range to be parsed
+     * @return size packed into a long or {@link #UNKNOWN_SIZE} if the address is no reference
+     * @throws IllegalArgumentException if the address is a reference beyond the limits of a worksheet
+     */
+    public static long sizeOf(CharSequence address) throws IllegalArgumentException {
+        int length = address.length();
+        int start = skipSheet(address, length);
+        int colon = start == INVALID_INDEX ? INVALID_INDEX : indexOfColon(address, start, length);
+        if (colon == INVALID_INDEX) {
+            return UNKNOWN_SIZE;
+        }
+        long from = parsePart(address, start, colon == -1 ? length : colon);
+        long to = colon == -1 ? from : parsePart(address, colon + 1, length);
+        if (from == TOO_BIG || to == TOO_BIG) {
+            throw tooBig(address);
+        }
+        long first = corner(from, to, colon != -1, false);
+        long last = corner(from, to, colon != -1, true);
+        if (first == INVALID || last == INVALID) {
+            return UNKNOWN_SIZE;
+        }
+        return ((long) (partRow(last) - partRow(first) + 1) << 32) | (partColumn(last) - partColumn(first) + 1);
+    }
+
+    /**
+     * @param size size returned by {@link #parseSize(CharSequence)}
+     * @return number of rows
+     */
+    public static int rows(long size) {
+        return (int) (size >>> 32);
+    }
+
+    /**
+     * @param size size returned by {@link #parseSize(CharSequence)}
+     * @return number of columns
+     */
+    public static int columns(long size) {
+        return (int) size;
+    }
+
+    /**
+     * Checks if the address is a range of exactly one cell
+     * @param address range to be parsed
+     * @return true if range is one cell
+     * @throws IllegalArgumentException if the address is invalid
+     */
+    public static boolean isSingleCell(CharSequence address) throws IllegalArgumentException {
+        return parseSize(address) == SINGLE_CELL;
+    }
+
+    /**
+     * Checks if the address is a reference to more than one cell
+     * @param address range to be parsed
+     * @return true if the range has multiple cells, false for one cell and addresses which are no references
+     * @throws IllegalArgumentException if the address is a reference beyond the limits of a worksheet
+     */
+    public static boolean isMultipleCells(CharSequence address) throws IllegalArgumentException {
+        long size = sizeOf(address);
+        return size != UNKNOWN_SIZE && size != SINGLE_CELL;
+    }
+
+    /**
+     * Parses the bounds of a range
+     * @param address range to be parsed
+     * @param bounds array of at least 4 elements which receives [firstRow, firstColumn, lastRow, lastColumn], 0-based
+     * @throws IllegalArgumentException if the address is invalid
+     */
+    public static void parse(CharSequence address, int[] bounds) throws IllegalArgumentException {
+        int length = address.length();
+        int start = skipSheet(address, length);
+        int colon = start == INVALID_INDEX ? INVALID_INDEX : indexOfColon(address, start, length);
+        if (colon == INVALID_INDEX) {
+            throw invalid(address);
+        }
+        long from = check(parsePart(address, start, colon == -1 ? length : colon), address);
+        long to = colon == -1 ? from : check(parsePart(address, colon + 1, length), address);
+        long first = check(corner(from, to, colon != -1, false), address);
+        long last = check(corner(from, to, colon != -1, true), address);
+        bounds[0] = partRow(first) - 1;
+        bounds[1] = partColumn(first) - 1;
+        bounds[2] = partRow(last) - 1;
+        bounds[3] = partColumn(last) - 1;
+    }
+
+    /**
+     * @return index of the colon separating both sides of a range, -1 if it's a single reference or INVALID_INDEX
+     */
+    private static int indexOfColon(CharSequence address, int start, int length) {
+        int colon = -1;
+        for (int i = start; i < length; i++) {
+            if (address.charAt(i) == ':') {
+                if (colon != -1) {
+                    return INVALID_INDEX;
+                }
+                colon = i;
+            }
+        }
+        return colon;
+    }
+
+    /**
+     * Gets the upper left or lower right cell of a range. Whole rows and columns are expanded, reversed bounds
+     * like "B2:A1" are normalized like excel does.
+     * @param from first part of the range
+     * @param to second part of the range, same as from if it's a single reference
+     * @param isRange true if the address had two parts
+     * @param last true for the lower right, false for the upper left cell
+     * @return cell as part or a negative error code
+     */
+    private static long corner(long from, long to, boolean isRange, boolean last) {
+        if (from < 0 || to < 0) {
+            return INVALID;
+        }
+        int fromRow = partRow(from), fromColumn = partColumn(from), toRow = partRow(to), toColumn = partColumn(to);
+        if (isRange && fromRow == 0 && toRow == 0 && fromColumn != 0 && toColumn != 0) {
+            // whole columns
+            fromRow = 1;
+            toRow = MAX_ROWS;
+        } else if (isRange && fromColumn == 0 && toColumn == 0 && fromRow != 0 && toRow != 0) {
+            // whole rows
+            fromColumn = 1;
+            toColumn = MAX_COLUMNS;
+        } else if (fromRow == 0 || toRow == 0 || fromColumn == 0 || toColumn == 0) {
+            return INVALID;
+        }
+        int row = last ? Math.max(fromRow, toRow) : Math.min(fromRow, toRow);
+        int column = last ? Math.max(fromColumn, toColumn) : Math.min(fromColumn, toColumn);
+        return ((long) row << 32) | column;
+    }
+
+    /**
+     * @return index after the sheet qualifier, 0 if there is none or INVALID_INDEX
+     */
+    private static int skipSheet(CharSequence address, int length) {
+        if (length > 0 && address.charAt(0) == '\'') {
+            // quoted sheet name, quotes inside are escaped by doubling them
+            int i = 1;
+            while (i < length) {
+                if (address.charAt(i) == '\'') {
+                    if (i + 1 < length && address.charAt(i + 1) == '\'') {
+                        i += 2;
+                        continue;
+                    }
+                    if (i + 1 < length && address.charAt(i + 1) == '!') {
+                        return i + 2;
+                    }
+                    break;
+                }
+                i++;
+            }
+            return INVALID_INDEX;
+        }
+        for (int i = 0; i < length; i++) {
+            if (address.charAt(i) == '!') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parses one side of a range, A1 first and R1C1 if it isn't a valid A1 reference
+     * @return row (1-based, 0 for a whole column) in the upper and column (1-based, 0 for a whole row) in the lower
+     * 32 bits or a negative error code
+     */
+    private static long parsePart(CharSequence address, int from, int to) {
+        long part = parseA1(address, from, to);
+        return part == INVALID ? parseR1C1(address, from, to) : part;
+    }
+
+    private static long parseA1(CharSequence address, int from, int to) {
+        int i = from;
+        if (i < to && address.charAt(i) == '$') i++;
+        int column = 0, letters = 0;
+        while (i < to && isLetter(address.charAt(i))) {
+            column = column * 26 + (Character.toUpperCase(address.charAt(i++)) - 'A' + 1);
+            // longer words are names, not columns
+            if (++letters > 3) return INVALID;
+        }
+        if (i < to && address.charAt(i) == '$') {
+            if (letters == 0) return INVALID;
+            i++;
+        }
+        int row = 0, digits = 0;
+        while (i < to && isDigit(address.charAt(i))) {
+            row = row * 10 + (address.charAt(i++) - '0');
+            if (++digits > 7) return TOO_BIG;
+        }
+        if (i != to || (letters == 0 && digits == 0) || (digits > 0 && row == 0)) return INVALID;
+        if (column > MAX_COLUMNS || row > MAX_ROWS) return TOO_BIG;
+        return ((long) row << 32) | column;
+    }
+
+    private static long parseR1C1(CharSequence address, int from, int to) {
+        int i = from;
+        if (i >= to || Character.toUpperCase(address.charAt(i++)) != 'R') return INVALID;
+        int row = 0, digits = 0;
+        while (i < to && isDigit(address.charAt(i))) {
+            row = row * 10 + (address.charAt(i++) - '0');
+            if (++digits > 7) return TOO_BIG;
+        }
+        if (digits == 0 || i >= to || Character.toUpperCase(address.charAt(i++)) != 'C') return INVALID;
+        int column = 0;
+        digits = 0;
+        while (i < to && isDigit(address.charAt(i))) {
+            column = column * 10 + (address.charAt(i++) - '0');
+            if (++digits > 5) return TOO_BIG;
+        }
+        if (i != to || digits == 0 || row == 0 || column == 0) return INVALID;
+        if (column > MAX_COLUMNS || row > MAX_ROWS) return TOO_BIG;
+        return ((long) row << 32) | column;
+    }
+
+    private static int partRow(long part) {
+        return (int) (part >>> 32);
+    }
+
+    private static int partColumn(long part) {
+        return (int) part;
+    }
+
+    private static long check(long part, CharSequence address) {
+        if (part == TOO_BIG) {
+            throw tooBig(address);
+        } else if (part < 0) {
+            throw invalid(address);
+        }
+        return part;
+    }
+
+    private static IllegalArgumentException tooBig(CharSequence address) {
+        return new IllegalArgumentException("range too big: " + address);
+    }
+
+    private static IllegalArgumentException invalid(CharSequence address) {
+        return new IllegalArgumentException("Unknown range format: " + address);
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
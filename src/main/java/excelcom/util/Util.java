@@ -4,8 +4,9 @@ import com.sun.jna.platform.win32.COM.COMException;
 import com.sun.jna.platform.win32.Variant;
 import com.sun.jna.platform.win32.WTypes;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.Date;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -64,46 +65,13 @@ public class Util {
 
     /**
      * Returns the size of the range. [rows, columns]
-     * @param range range to be parsed, assuming it's like A3:B10 or AA10:CB20 or A13
+     * @param range range to be parsed, e.g. A13, A3:B10, $A$1:$C$2, A:C, 3:7, 'Sheet 1'!A1:B2 or R1C1:R2C3
+     *              (see {@link AddressParser})
      * @return integer array with two elements: [row, columns]
      */
     public static int[] getRangeSize(String range) throws IllegalArgumentException {
-        String[] splits = range.split("[:]");
-        if(splits.length == 1) {
-            // unary range
-            return new int[]{1,1};
-        } else if(splits.length == 2) {
-            // range is a matrix
-            Matcher mFromLetters = Pattern.compile("[a-zA-Z]+").matcher(splits[0]);
-            Matcher mFromDigits = Pattern.compile("[0-9]+").matcher(splits[0]);
-            Matcher mToLetters = Pattern.compile("[a-zA-Z]+").matcher(splits[1]);
-            Matcher mToDigits = Pattern.compile("[0-9]+").matcher(splits[1]);
-
-            if(mFromLetters.find() && mFromDigits.find() && mToLetters.find() && mToDigits.find()) {
-                String fromLetters = mFromLetters.group();
-                int fromDigits = Integer.parseInt(mFromDigits.group());
-                String toLetters = mToLetters.group();
-                int toDigits = Integer.parseInt(mToDigits.group());
-
-                if(fromLetters.length() > 3 || toLetters.length() > 3 || fromDigits > 1048576 || toDigits > 1048576) {
-                    throw new IllegalArgumentException("range too big: " + range);
-                } else if(fromDigits > toDigits) {
-                    throw new IllegalArgumentException("begin of range is bigger than it's end");
-                } else {
-                    int beginColumn = fromLetters.length() != 3 ? (fromLetters.length() != 2 ? getPositionInAlphabet(fromLetters.charAt(0))
-                            : getPositionInAlphabet(fromLetters.charAt(1)) + getPositionInAlphabet(fromLetters.charAt(0)) * 26)
-                            : getPositionInAlphabet(fromLetters.charAt(2)) + getPositionInAlphabet(fromLetters.charAt(1)) * 26 + getPositionInAlphabet(fromLetters.charAt(0)) * 26 * 26;
-                    int endColumn = toLetters.length() != 3 ? (toLetters.length() != 2 ? getPositionInAlphabet(toLetters.charAt(0))
-                            : getPositionInAlphabet(toLetters.charAt(1)) + getPositionInAlphabet(toLetters.charAt(0)) * 26)
-                            : getPositionInAlphabet(toLetters.charAt(2)) + getPositionInAlphabet(toLetters.charAt(1)) * 26 + getPositionInAlphabet(toLetters.charAt(0)) * 26 * 26;
-                    return new int[]{(toDigits - fromDigits) + 1, (endColumn - beginColumn) + 1};
-                }
-            } else {
-                throw new IllegalArgumentException("Unknown range format: " + range);
-            }
-        } else {
-            throw new IllegalArgumentException("Unknown range format: " + range);
-        }
+        long size = AddressParser.parseSize(range);
+        return new int[]{AddressParser.rows(size), AddressParser.columns(size)};
     }
 
     /**
@@ -156,6 +124,75 @@ public class Util {
                 + Util.getColumnName(upperColumn + 1) + Integer.toString(upperRow + 1);
     }
 
+    /**
+     * Formats a number like excel shows it in the General format, which is what Find matches: integers without
+     * a fraction and other numbers with at most 15 significant digits in plain notation, e.g. 0.00001 and 0.3
+     * instead of 1.0E-5 and 0.30000000000000004
+     * @param d number
+     * @return text of the number
+     */
+    public static String numberToText(double d) {
+        if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+            return Long.toString((long) d);
+        }
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            return Double.toString(d);
+        }
+        return BigDecimal.valueOf(d).round(new MathContext(15)).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Checks if a text matches a search pattern like excel's Find does. '*' matches any sequence of characters,
+     * '?' any single character and '~' escapes the following character (e.g. "~*" matches a literal '*').
+     * @param pattern search pattern
+     * @param text text to be tested
+     * @param matchCase true if upper and lower case should be distinguished
+     * @param wholeCell true if the whole text has to match (xlWhole), false if a part is sufficient (xlPart)
+     * @return true if text matches pattern
+     */
+    public static boolean matchesWildcard(String pattern, String text, boolean matchCase, boolean wholeCell) {
+        int p = 0, t = 0;
+        // a part match behaves like a pattern surrounded by '*'
+        int starP = wholeCell ? -1 : 0, starT = 0;
+        while (t < text.length()) {
+            if (!wholeCell && p == pattern.length()) {
+                return true;
+            }
+            if (p < pattern.length()) {
+                char pc = pattern.charAt(p);
+                if (pc == '*') {
+                    starP = ++p;
+                    starT = t;
+                    continue;
+                }
+                boolean escaped = pc == '~' && p + 1 < pattern.length();
+                if (escaped) {
+                    pc = pattern.charAt(p + 1);
+                }
+                if ((!escaped && pc == '?') || equalsChar(pc, text.charAt(t), matchCase)) {
+                    p += escaped ? 2 : 1;
+                    t++;
+                    continue;
+                }
+            }
+            if (starP == -1) {
+                return false;
+            }
+            // backtrack: let the last '*' consume one more character
+            p = starP;
+            t = ++starT;
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static boolean equalsChar(char a, char b, boolean matchCase) {
+        return a == b || (!matchCase && (Character.toUpperCase(a) == Character.toUpperCase(b)
+                || Character.toLowerCase(a) == Character.toLowerCase(b)));
+    }
+
     /**
      * Creates a new Variant object which encapsulates the raw Object with correct type
      * @param o object to be wrapped
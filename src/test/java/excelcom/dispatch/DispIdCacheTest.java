@@ -0,0 +1,103 @@
+package excelcom.dispatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for DispIdCache, in the package of the cache to reach its package-private lookups
+ */
+public class DispIdCacheTest {
+
+    private final DispIdCache cache = DispIdCache.getInstance();
+    private final DispIdCache.Type application = cache.root("Excel.Application");
+
+    @Before
+    public void setUp() {
+        cache.clear();
+        cache.resetCounters();
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        cache.resetCounters();
+    }
+
+    @Test
+    public void shouldIgnoreCaseOfMemberNames() {
+        cache.put(application, "Workbooks", 572);
+        assertEquals(Integer.valueOf(572), cache.get(application, "workbooks"));
+        assertEquals(Integer.valueOf(572), cache.get(application, "WORKBOOKS"));
+
+        cache.put(application, "VISIBLE", 558);
+        assertEquals(Integer.valueOf(558), cache.get(application, "Visible"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        assertNull(cache.get(application, "Workbooks"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.put(application, "Workbooks", 572);
+        cache.get(application, "Workbooks");
+        cache.get(application, "workbooks");
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void shouldResetCountersOnly() {
+        cache.put(application, "Workbooks", 572);
+        cache.get(application, "Workbooks");
+        cache.get(application, "Visible");
+
+        cache.resetCounters();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(Integer.valueOf(572), cache.get(application, "Workbooks"));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void shouldClearDispIdsOnly() {
+        DispIdCache.Type workbooks = application.member("Workbooks", 0);
+        cache.put(application, "Workbooks", 572);
+        cache.put(workbooks, "Open", 1923);
+        cache.get(application, "Workbooks");
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(application, "Workbooks"));
+        assertNull(cache.get(workbooks, "open"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertSame(workbooks, application.member("Workbooks", 0));
+    }
+
+    @Test
+    public void shouldSeparateMemberTypesByArgumentCount() {
+        DispIdCache.Type workbook = application.member("Workbooks", 1);
+        assertSame(application, cache.root("Excel.Application"));
+        assertSame(workbook, application.member("Workbooks", 1));
+
+        // Worksheets() returns the Sheets collection, Worksheets(name) a single Worksheet
+        DispIdCache.Type sheets = workbook.member("Worksheets", 0);
+        DispIdCache.Type sheet = workbook.member("Worksheets", 1);
+        assertNotSame(sheets, sheet);
+        assertEquals("Excel.Application.Workbooks/1.Worksheets/0", sheets.toString());
+        assertEquals("Excel.Application.Workbooks/1.Worksheets/1", sheet.toString());
+
+        cache.put(sheets, "Item", 170);
+        cache.put(sheet, "Range", 197);
+        assertEquals(Integer.valueOf(170), cache.get(sheets, "Item"));
+        assertNull(cache.get(sheet, "Item"));
+        assertEquals(Integer.valueOf(197), cache.get(sheet, "Range"));
+        assertNull(cache.get(sheets, "Range"));
+    }
+}
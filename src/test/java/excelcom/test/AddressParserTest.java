@@ -0,0 +1,132 @@
+package excelcom.test;
+
+import excelcom.util.AddressParser;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AddressParser
+ */
+public class AddressParserTest {
+
+    private static int[] parse(String address) {
+        int[] bounds = new int[4];
+        AddressParser.parse(address, bounds);
+        return bounds;
+    }
+
+    @Test
+    public void shouldParseA1() {
+        assertArrayEquals(new int[]{2, 2, 2, 2}, parse("C3"));
+        assertArrayEquals(new int[]{0, 0, 1, 2}, parse("A1:C2"));
+        assertArrayEquals(new int[]{0, 0, 1, 2}, parse("a1:c2"));
+        assertArrayEquals(new int[]{1048575, 16383, 1048575, 16383}, parse("XFD1048576"));
+    }
+
+    @Test
+    public void shouldParseAbsoluteReferences() {
+        assertArrayEquals(new int[]{0, 0, 1, 2}, parse("$A$1:$C$2"));
+        assertArrayEquals(new int[]{0, 0, 1, 2}, parse("$A1:C$2"));
+    }
+
+    @Test
+    public void shouldNormalizeReversedRange() {
+        assertArrayEquals(new int[]{0, 0, 1, 2}, parse("C2:A1"));
+    }
+
+    @Test
+    public void shouldParseWholeColumnsAndRows() {
+        assertArrayEquals(new int[]{0, 0, 1048575, 2}, parse("A:C"));
+        assertArrayEquals(new int[]{0, 1, 1048575, 1}, parse("$B:$B"));
+        assertArrayEquals(new int[]{2, 0, 6, 16383}, parse("3:7"));
+        long size = AddressParser.parseSize("3:7");
+        assertEquals(5, AddressParser.rows(size));
+        assertEquals(16384, AddressParser.columns(size));
+    }
+
+    @Test
+    public void shouldParseSheetQualifiedReferences() {
+        assertArrayEquals(new int[]{0, 0, 1, 1}, parse("'Sheet 1'!A1:B2"));
+        assertArrayEquals(new int[]{0, 0, 1, 1}, parse("'It''s a sheet'!A1:B2"));
+        assertArrayEquals(new int[]{4, 1, 4, 1}, parse("Sheet1!B5"));
+    }
+
+    @Test
+    public void shouldParseR1C1() {
+        assertArrayEquals(new int[]{0, 0, 1, 2}, parse("R1C1:R2C3"));
+        assertArrayEquals(new int[]{4, 1, 4, 1}, parse("r5c2"));
+    }
+
+    @Test
+    public void shouldCheckSingleCell() {
+        assertTrue(AddressParser.isSingleCell("B2"));
+        assertTrue(AddressParser.isSingleCell("B2:B2"));
+        assertFalse(AddressParser.isSingleCell("B2:B3"));
+        assertFalse(AddressParser.isSingleCell("B:B"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeSingleColumn() {
+        AddressParser.parseSize("A");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeMixedColumnAndCell() {
+        AddressParser.parseSize("A:B2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeUnterminatedSheetName() {
+        AddressParser.parseSize("'Sheet 1!A1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeRelativeR1C1() {
+        AddressParser.parseSize("R[1]C[1]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeRowZero() {
+        AddressParser.parseSize("A0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeTooBigColumn() {
+        AddressParser.parseSize("XFE1");
+    }
+
+    @Test
+    public void shouldLeaveNamesToExcel() {
+        assertEquals(AddressParser.UNKNOWN_SIZE, AddressParser.sizeOf("Total"));
+        assertEquals(AddressParser.UNKNOWN_SIZE, AddressParser.sizeOf("MyCell"));
+        assertEquals(AddressParser.UNKNOWN_SIZE, AddressParser.sizeOf("Sheet1!Total"));
+        assertEquals(AddressParser.UNKNOWN_SIZE, AddressParser.sizeOf("A1,B2"));
+        assertEquals(2, AddressParser.rows(AddressParser.sizeOf("A1:B2")));
+        assertFalse(AddressParser.isMultipleCells("Total"));
+        assertFalse(AddressParser.isMultipleCells("B2"));
+        assertTrue(AddressParser.isMultipleCells("B2:C2"));
+        try {
+            AddressParser.parseSize("Total");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown range format: Total", e.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldReportTooBigReferencesOnly() {
+        try {
+            AddressParser.sizeOf("A1:XFE1");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("range too big: A1:XFE1", e.getMessage());
+        }
+        try {
+            AddressParser.sizeOf("A2000000");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("range too big: A2000000", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package excelcom.test;
+
+import excelcom.api.ExcelConnection;
+import excelcom.api.ExcelConnectionPool;
+import excelcom.api.ExcelException;
+import excelcom.dispatch.SimulatedExcel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the connection pool running on simulated excel instances
+ */
+public class ExcelConnectionPoolTest {
+
+    private final List<SimulatedExcel> instances = new ArrayList<>();
+
+    private ExcelConnection connect() {
+        SimulatedExcel excel = new SimulatedExcel();
+        instances.add(excel);
+        return ExcelConnection.connect(excel);
+    }
+
+    @Test
+    public void shouldReuseConnections() {
+        try (ExcelConnectionPool pool = new ExcelConnectionPool(this::connect, 1, 2)) {
+            assertEquals(1, pool.getCreatedCount());
+            ExcelConnection first;
+            try (ExcelConnectionPool.Lease lease = pool.lease()) {
+                first = lease.getConnection();
+                assertEquals("16.0", first.getVersion());
+            }
+            try (ExcelConnectionPool.Lease lease = pool.lease()) {
+                assertSame(first, lease.getConnection());
+            }
+            assertEquals(1, pool.getCreatedCount());
+            assertEquals(1, pool.getIdleCount());
+        }
+        assertTrue(instances.get(0).isQuit());
+    }
+
+    @Test
+    public void shouldTimeOutIfAllAreLeased() {
+        try (ExcelConnectionPool pool = new ExcelConnectionPool(this::connect, 0, 2).setLeaseTimeout(10, TimeUnit.MILLISECONDS)) {
+            ExcelConnectionPool.Lease first = pool.lease();
+            ExcelConnectionPool.Lease second = pool.lease();
+            assertNotSame(first.getConnection(), second.getConnection());
+            try {
+                pool.lease();
+                fail();
+            } catch (ExcelException e) {
+                assertEquals(2, pool.getSize());
+            }
+            first.close();
+            second.close();
+            assertEquals(2, pool.getIdleCount());
+        }
+    }
+
+    @Test
+    public void shouldRecycleAfterMaxLeases() {
+        try (ExcelConnectionPool pool = new ExcelConnectionPool(this::connect, 0, 1).setMaxLeases(2)) {
+            for (int i = 0; i < 5; i++) {
+                pool.lease().close();
+            }
+            assertEquals(3, pool.getCreatedCount());
+            assertTrue(instances.get(0).isQuit());
+            assertTrue(instances.get(1).isQuit());
+            assertFalse(instances.get(2).isQuit());
+        }
+    }
+
+    @Test
+    public void shouldRecycleAfterMaxAge() throws InterruptedException {
+        try (ExcelConnectionPool pool = new ExcelConnectionPool(this::connect, 1, 1).setMaxAge(1, TimeUnit.MILLISECONDS)) {
+            Thread.sleep(5);
+            pool.lease().close();
+            assertTrue(instances.get(0).isQuit());
+            assertEquals(1, pool.getSize());
+        }
+    }
+
+    @Test
+    public void shouldReplaceDeadAndInvalidatedConnections() {
+        try (ExcelConnectionPool pool = new ExcelConnectionPool(this::connect, 1, 1)) {
+            // closed by the user
+            instances.get(0).call("Quit");
+            try (ExcelConnectionPool.Lease lease = pool.lease()) {
+                assertEquals("16.0", lease.getConnection().getVersion());
+                lease.invalidate();
+            }
+            assertTrue(instances.get(1).isQuit());
+            // replaced to keep minSize
+            assertEquals(1, pool.getIdleCount());
+            pool.lease().close();
+            assertEquals(3, pool.getCreatedCount());
+        }
+    }
+
+    @Test
+    public void shouldKeepMinSizeAfterRecycling() {
+        try (ExcelConnectionPool pool = new ExcelConnectionPool(this::connect, 2, 3).setMaxLeases(1)) {
+            ExcelConnectionPool.Lease first = pool.lease();
+            ExcelConnectionPool.Lease second = pool.lease();
+            ExcelConnectionPool.Lease third = pool.lease();
+            first.close();
+            second.close();
+            third.close();
+            assertEquals(2, pool.getSize());
+            assertEquals(2, pool.getIdleCount());
+            assertEquals(5, pool.getCreatedCount());
+        }
+    }
+
+    @Test
+    public void shouldQuitLeasedConnectionsAfterClose() {
+        ExcelConnectionPool pool = new ExcelConnectionPool(this::connect, 0, 1);
+        ExcelConnectionPool.Lease lease = pool.lease();
+        pool.close();
+        assertFalse(instances.get(0).isQuit());
+        lease.close();
+        assertTrue(instances.get(0).isQuit());
+        try {
+            pool.lease();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(0, pool.getSize());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package excelcom.test;
+
+import excelcom.api.CellRef;
+import excelcom.api.RangeRef;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for CellRef and RangeRef
+ */
+public class RangeRefTest {
+
+    @Test
+    public void shouldRenderCellAddress() {
+        assertEquals("A1", CellRef.of(0, 0).getAddress());
+        assertEquals("AA10", CellRef.of(9, 26).getAddress());
+        assertEquals("XFD1048576", CellRef.of(1048575, 16383).getAddress());
+    }
+
+    @Test
+    public void shouldParseCell() {
+        CellRef cell = CellRef.parse("$C$5");
+        assertEquals(4, cell.getRow());
+        assertEquals(2, cell.getColumn());
+        assertEquals(CellRef.of(4, 2), cell);
+        assertEquals("C5", cell.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeMultipleCellsForCell() {
+        CellRef.parse("A1:B2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeNegativeIndex() {
+        CellRef.of(-1, 0);
+    }
+
+    @Test
+    public void shouldRenderRangeAddress() {
+        assertEquals("B2:E4", RangeRef.of(1, 1, 3, 4).getAddress());
+        assertEquals("B2:E4", RangeRef.of(3, 4, 1, 1).getAddress());
+        assertEquals("B2", RangeRef.of(1, 1, 1, 1).getAddress());
+        RangeRef range = RangeRef.of(1, 1, 3, 4);
+        assertSame(range.getAddress(), range.getAddress());
+    }
+
+    @Test
+    public void shouldParseRange() {
+        RangeRef range = RangeRef.parse("A:C");
+        assertEquals(1048576, range.getRowCount());
+        assertEquals(3, range.getColumnCount());
+        assertEquals(RangeRef.of(0, 0, 1048575, 2), range);
+        assertTrue(range.contains(5, 2));
+        assertFalse(range.contains(5, 3));
+        assertTrue(RangeRef.parse("B3").isSingleCell());
+        assertEquals(CellRef.of(2, 1), RangeRef.parse("B3:C4").getFirstCell());
+        assertEquals(RangeRef.parse("B3"), CellRef.of(2, 1).toRangeRef());
+    }
+
+    @Test
+    public void shouldIntersect() {
+        RangeRef range = RangeRef.parse("B2:D5");
+        assertEquals(RangeRef.parse("C4:D5"), range.intersect(RangeRef.parse("C4:F9")));
+        assertEquals(range, range.intersect(RangeRef.parse("A1:Z100")));
+        assertEquals(RangeRef.parse("B2"), range.intersect(RangeRef.parse("A1:B2")));
+        assertNull(range.intersect(RangeRef.parse("E1:F9")));
+    }
+}
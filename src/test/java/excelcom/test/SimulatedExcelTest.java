@@ -0,0 +1,881 @@
+package excelcom.test;
+
+import excelcom.api.*;
+import excelcom.dispatch.CallMetrics;
+import excelcom.dispatch.CallTracer;
+import excelcom.dispatch.CellMatrix;
+import excelcom.dispatch.ComScope;
+import excelcom.dispatch.ComThread;
+import excelcom.dispatch.SimulatedExcel;
+import org.junit.*;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the api running on a simulated excel instance. Runs without excel.
+ */
+public class SimulatedExcelTest {
+
+    private SimulatedExcel excel = null;
+    private ExcelConnection connection = null;
+    private Workbook workbook = null;
+    private Worksheet worksheet = null;
+
+    @Before
+    public void establishConnection() {
+        excel = new SimulatedExcel();
+        connection = ExcelConnection.connect(excel);
+        connection.setDisplayAlerts(false);
+        workbook = connection.openWorkbook(new File("test.xlsx"));
+        worksheet = workbook.addWorksheet("test");
+    }
+
+    @After
+    public void closeConnection() {
+        workbook.close(false);
+        connection.quit();
+    }
+
+    @Test
+    public void shouldConnect() {
+        assertEquals("16.0", connection.getVersion());
+        assertEquals("test.xlsx", workbook.getName());
+        assertEquals("test", workbook.getWorksheet("test").getName());
+    }
+
+    @Test
+    public void shouldModifyWorksheetContent() {
+        Object[][] content = new Object[][]{
+                {"A22", 123},
+                {54.6, 23.5f},
+                {"äöüß", true}
+        };
+
+        worksheet.setContent("A2:B4", content);
+        assertArrayEquals(new Object[][]{ {"A22", 123.0}, {54.6, 23.5}, {"äöüß", true} }, worksheet.getContent("A2:B4"));
+        assertArrayEquals(new Object[][]{ {"A22", 123.0}, {54.6, 23.5}, {"äöüß", true} }, worksheet.getContent());
+        assertArrayEquals(new Object[][]{ {123.0}, {23.5} }, worksheet.getContent(1, 1, 2, 1));
+    }
+
+    @Test
+    public void shouldSetRangeToOneValue() {
+        worksheet.setContent("A2:B3", 123.5);
+        assertArrayEquals(new Object[][]{ {123.5, 123.5}, {123.5, 123.5} }, worksheet.getContent("A2:B3"));
+    }
+
+    @Test
+    public void shouldPassDefinedNamesToExcel() {
+        excel.defineName("Total", "B2").defineName("Values", "C1:C3");
+        worksheet.setUnaryContent("Total", 42);
+        assertEquals(42.0, worksheet.getUnaryContent("Total"));
+        assertEquals(42.0, worksheet.getUnaryContent("B2"));
+        worksheet.setComment("Total", "sum");
+        assertEquals("sum", worksheet.getComment("Total"));
+
+        worksheet.setContent("Values", "x");
+        assertArrayEquals(new Object[][]{ {"x"}, {"x"}, {"x"} }, worksheet.getContent("C1:C3"));
+        assertArrayEquals(new String[]{"x", "x", "x"}, worksheet.readStringColumn("Values"));
+    }
+
+    @Test
+    public void shouldRejectWholeRowsAndColumnsForOneValue() {
+        for (String range : new String[]{"A:C", "1:1", "A1:A1048576"}) {
+            try {
+                worksheet.setContent(range, 1);
+                fail(range);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains(range));
+            }
+        }
+        try {
+            worksheet.setContent(RangeRef.parse("B:B"), 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("B"));
+        }
+        assertNull(worksheet.getUnaryContent("A1"));
+    }
+
+    @Test
+    public void shouldSetAndGetUnaryRangeContent() {
+        worksheet.setUnaryContent("A3", "test");
+        worksheet.setUnaryContent(0, 7, 123);
+
+        assertEquals("test", worksheet.getUnaryContent("A3"));
+        assertEquals(123.0, worksheet.getUnaryContent(0, 7));
+        assertNull(worksheet.getUnaryContent("Z100"));
+    }
+
+    @Test
+    public void shouldUseReferences() {
+        RangeRef range = RangeRef.of(1, 0, 2, 1);
+        worksheet.setContent(range, new Object[][]{ {1, 2}, {3, 4} });
+        assertArrayEquals(new Object[][]{ {1.0, 2.0}, {3.0, 4.0} }, worksheet.getContent(range));
+        worksheet.setContent(range, "x");
+        assertEquals("x", worksheet.getUnaryContent(CellRef.of(2, 1)));
+        worksheet.setUnaryContent(CellRef.of(2, 1), 5);
+        assertEquals(5.0, worksheet.getUnaryContent(CellRef.of(2, 1)));
+        worksheet.setFillColor(range, ExcelColor.RED);
+        assertEquals(ExcelColor.RED, worksheet.getFillColor(range));
+        worksheet.setComment(CellRef.of(0, 0), "comment");
+        assertEquals("comment", worksheet.getComment(CellRef.of(0, 0)));
+        assertEquals(5.0, worksheet.find(new FindOptions().setValue("5").setRange(range).setAfter(range.getFirstCell())).getContent());
+    }
+
+    @Test
+    public void shouldSetTypedColumns() {
+        worksheet.setColumn("B2", new double[]{ 1.5, 2.5 });
+        worksheet.setColumn(CellRef.of(1, 2), new long[]{ 3, 4 });
+        worksheet.setColumn("D2", new boolean[]{ true, false });
+        worksheet.setColumn("E2", new String[]{ "a", null });
+        assertArrayEquals(new Object[][]{ {1.5, 3.0, true, "a"}, {2.5, 4.0, false, null} }, worksheet.getContent("B2:E3"));
+    }
+
+    @Test
+    public void shouldSetTypedBlocks() {
+        worksheet.setBlock(RangeRef.parse("A1:C2"), new double[][]{ {1, 2, 3}, {4, 5, 6} });
+        assertArrayEquals(new Object[][]{ {1.0, 2.0, 3.0}, {4.0, 5.0, 6.0} }, worksheet.getContent("A1:C2"));
+        worksheet.setBlock(RangeRef.parse("A1:B2"), new String[][]{ {"a", "b"}, {"", "d"} });
+        assertArrayEquals(new Object[][]{ {"a", "b"}, {null, "d"} }, worksheet.getContent("A1:B2"));
+        worksheet.setBlock(RangeRef.parse("A3:B3"), new boolean[][]{ {true, false} });
+        worksheet.setBlock(RangeRef.parse("A4:B4"), new long[][]{ {7, 8} });
+        assertArrayEquals(new Object[][]{ {true, false}, {7.0, 8.0} }, worksheet.getContent("A3:B4"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeWrongBlockSize() {
+        worksheet.setBlock(RangeRef.parse("A1:C2"), new double[][]{ {1, 2, 3}, {4, 5} });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeTooLongColumn() {
+        worksheet.setColumn("A1048576", new double[]{ 1, 2 });
+    }
+
+    @Test
+    public void shouldReadCellMatrix() {
+        worksheet.setContent("A1:C2", new Object[][]{ {"a", 1.5, true}, {null, 2, "b"} });
+        CellMatrix matrix = worksheet.getCellMatrix("A1:C2");
+        try {
+            assertEquals(2, matrix.getRowCount());
+            assertEquals(3, matrix.getColumnCount());
+            assertEquals(CellMatrix.Type.STRING, matrix.getType(0, 0));
+            assertEquals("a", matrix.getString(0, 0));
+            assertEquals(CellMatrix.Type.EMPTY, matrix.getType(1, 0));
+            assertEquals(1.5, matrix.getDouble(0, 1), 0);
+            assertEquals(2.0, matrix.getDouble(1, 1), 0);
+            assertTrue(Double.isNaN(matrix.getDouble(1, 2)));
+            assertNull(matrix.getString(1, 1));
+            assertEquals(CellMatrix.Type.BOOLEAN, matrix.getType(0, 2));
+            assertArrayEquals(new Object[][]{ {"a", 1.5, true}, {null, 2.0, "b"} }, matrix.toArray());
+        } finally {
+            matrix.close();
+        }
+        assertEquals("a", worksheet.getCellMatrix(CellRef.of(0, 0).toRangeRef()).get(0, 0));
+    }
+
+    @Test
+    public void shouldReadTypedColumns() {
+        Date date = new Date(1500000000000L);
+        worksheet.setContent("A1:D3", new Object[][]{ {1.5, "a", 7, date}, {null, 2, "x", null}, {"b", "c", 8.9, date} });
+        BitSet missing = new BitSet();
+        double[] doubles = worksheet.readDoubleColumn("A1:A3", missing);
+        assertEquals(1.5, doubles[0], 0);
+        assertTrue(Double.isNaN(doubles[1]));
+        assertEquals(2, missing.cardinality());
+        assertTrue(missing.get(1) && missing.get(2));
+
+        missing.clear();
+        assertArrayEquals(new String[]{ "a", null, "c" }, worksheet.readStringColumn(RangeRef.parse("B1:B3"), missing));
+        assertEquals(1, missing.cardinality());
+
+        missing.clear();
+        assertArrayEquals(new long[]{ 7, 0, 8 }, worksheet.readLongColumn("C1:C3", missing));
+        assertTrue(missing.get(1));
+
+        missing.clear();
+        assertArrayEquals(new long[]{ date.getTime(), 0, date.getTime() }, worksheet.readDateColumnAsEpochMillis("D1:D3", missing));
+        assertEquals(1, missing.cardinality());
+        assertArrayEquals(new double[]{ 7 }, worksheet.readDoubleColumn("C1"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeMultipleColumns() {
+        worksheet.readDoubleColumn("A1:B3");
+    }
+
+    @Test
+    public void shouldReadRowsInBlocks() {
+        double[] values = new double[25];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        worksheet.setColumn("B3", values);
+        worksheet.setUnaryContent("C4", "x");
+        int calls = 0;
+        try (RowCursor cursor = worksheet.getRowCursor(10)) {
+            assertEquals(RangeRef.parse("B3:C27"), cursor.getRange());
+            while (cursor.hasNext()) {
+                assertEquals(calls + 2, cursor.getNextRow());
+                Object[] row = cursor.next();
+                assertEquals((double) calls, row[0]);
+                assertEquals(calls == 1 ? "x" : null, row[1]);
+                calls++;
+            }
+        }
+        assertEquals(25, calls);
+
+        try (RowCursor cursor = worksheet.getRowCursor(RangeRef.parse("B3:B27"), 7, false)) {
+            assertEquals(300.0, cursor.stream().mapToDouble(row -> (Double) row[0]).sum(), 0);
+        }
+        RowCursor cursor = worksheet.getRowCursor(RangeRef.parse("B3:B27"), 5, true);
+        cursor.next();
+        cursor.close();
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    public void shouldWriteRowsInBlocks() {
+        excel.resetCallCount();
+        try (RowSink sink = worksheet.getRowSink(CellRef.parse("B2")).setMaxRows(4)) {
+            for (int i = 0; i < 10; i++) {
+                sink.append("row" + i, i);
+            }
+            assertEquals(8, sink.getWrittenRows());
+            assertEquals(11, sink.getNextRow());
+            sink.append("last");
+        }
+        // one Range and one Value call per block
+        assertEquals(6, excel.getCallCount());
+        assertArrayEquals(new Object[][]{ {"row0", 0.0}, {"row1", 1.0} }, worksheet.getContent("B2:C3"));
+        assertArrayEquals(new Object[][]{ {"row9", 9.0}, {"last", null} }, worksheet.getContent("B11:C12"));
+
+        try (RowSink sink = worksheet.getRowSink(CellRef.parse("E1")).setMaxBytes(100)) {
+            sink.append("a", "b", "c");
+            sink.append("d", "e", "f");
+            assertEquals(2, sink.getWrittenRows());
+        }
+    }
+
+    @Test
+    public void shouldMergeBufferedWrites() {
+        worksheet.setUnaryContent("A1", "old");
+        excel.resetCallCount();
+        try (CellWriteBuffer buffer = worksheet.bufferWrites()) {
+            // rectangle A2:C4, a run in D2:E2, a single cell G7 and one cell below the rectangle
+            for (int row = 1; row <= 3; row++) {
+                for (int column = 0; column <= 2; column++) {
+                    buffer.setUnaryContent(row, column, row * 10 + column);
+                }
+            }
+            buffer.setUnaryContent("D2", "d");
+            buffer.setUnaryContent("E2", "e");
+            buffer.setUnaryContent(CellRef.of(6, 6), true);
+            buffer.setUnaryContent("A5", "below");
+            buffer.setUnaryContent("A2", "changed");
+            assertEquals(13, buffer.getPendingCount());
+            assertEquals(0, excel.getCallCount());
+            assertEquals("changed", buffer.getUnaryContent(1, 0));
+            assertArrayEquals(new Object[][]{ {"old", null}, {"changed", 11} }, buffer.getContent(RangeRef.parse("A1:B2")));
+            excel.resetCallCount();
+        }
+        // two calls for each of the four rectangles
+        assertEquals(8, excel.getCallCount());
+        assertArrayEquals(new Object[][]{
+                {"old", null, null, null, null},
+                {"changed", 11.0, 12.0, "d", "e"},
+                {20.0, 21.0, 22.0, null, null},
+                {30.0, 31.0, 32.0, null, null},
+                {"below", null, null, null, null}
+        }, worksheet.getContent("A1:E5"));
+        assertEquals(true, worksheet.getUnaryContent("G7"));
+    }
+
+    @Test
+    public void shouldServeLookupsFromSnapshot() {
+        worksheet.setContent("B2:C3", new Object[][]{ {1, 2}, {3, 4} });
+        WorksheetSnapshot snapshot = worksheet.snapshot();
+        assertEquals(RangeRef.parse("B2:C3"), snapshot.getBounds());
+        excel.resetCallCount();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(4.0, snapshot.getUnaryContent(2, 2));
+            assertNull(snapshot.getUnaryContent("Z100"));
+        }
+        assertArrayEquals(new Object[][]{ {null, null}, {null, 1.0} }, snapshot.getContent("A1:B2"));
+        assertEquals(0, excel.getCallCount());
+
+        // written cells are read again once, others stay cached
+        worksheet.setUnaryContent("C3", "new");
+        worksheet.setUnaryContent("E5", "outside");
+        excel.resetCallCount();
+        assertEquals("new", snapshot.getUnaryContent("C3"));
+        assertEquals("new", snapshot.getUnaryContent("C3"));
+        assertEquals(1.0, snapshot.getUnaryContent("B2"));
+        assertEquals("outside", snapshot.getUnaryContent(CellRef.parse("E5")));
+        assertEquals(4, excel.getCallCount());
+
+        worksheet.setContent("D4", 5);
+        snapshot.refresh();
+        assertEquals(RangeRef.parse("B2:E5"), snapshot.getBounds());
+        assertEquals(5.0, snapshot.getUnaryContent("D4"));
+    }
+
+    @Test
+    public void shouldKeepCellsInvalidAfterFailedSnapshotRead() {
+        worksheet.setContent("A1:B1", new Object[][]{ {1, 2} });
+        WorksheetSnapshot snapshot = worksheet.snapshot();
+        worksheet.setUnaryContent("A1", 3);
+        excel.setUnavailable(true);
+        for (int i = 0; i < 2; i++) {
+            try {
+                snapshot.getUnaryContent("A1");
+                fail();
+            } catch (ExcelException e) {
+                assertTrue(e.getMessage().contains("unavailable"));
+            }
+        }
+        assertEquals(2.0, snapshot.getUnaryContent("B1"));
+        excel.setUnavailable(false);
+        assertEquals(3.0, snapshot.getUnaryContent("A1"));
+    }
+
+    @Test
+    public void shouldReadAroundRequestedSnapshot() {
+        worksheet.setContent("A1:B2", new Object[][]{ {1, 2}, {3, 4} });
+        WorksheetSnapshot snapshot = worksheet.snapshot(RangeRef.parse("A1:A2"));
+        excel.resetCallCount();
+        assertEquals(3.0, snapshot.getUnaryContent("A2"));
+        assertEquals(0, excel.getCallCount());
+        assertEquals(4.0, snapshot.getUnaryContent("B2"));
+        assertArrayEquals(new Object[][]{ {1.0, 2.0} }, snapshot.getContent("A1:B1"));
+    }
+
+    @Test
+    public void shouldSuspendAndRestoreInBulkSession() {
+        connection.setVisible(true);
+        Map<String, Object> before = excel.getApplicationProperties();
+        try (BulkSession session = connection.bulkSession()) {
+            assertEquals(false, excel.getApplicationProperties().get("ScreenUpdating"));
+            assertEquals(false, excel.getApplicationProperties().get("EnableEvents"));
+            assertEquals(-4135, excel.getApplicationProperties().get("Calculation"));
+            assertEquals(true, excel.getApplicationProperties().get("Interactive"));
+            session.setStatusBar("writing");
+
+            excel.resetCallCount();
+            try (BulkSession nested = connection.bulkSession(true)) {
+                // only Interactive is saved and changed
+                assertEquals(2, excel.getCallCount());
+                assertEquals(false, excel.getApplicationProperties().get("Interactive"));
+                nested.setStatusBar("nested");
+            }
+            assertEquals(true, excel.getApplicationProperties().get("Interactive"));
+            assertEquals("nested", excel.getApplicationProperties().get("StatusBar"));
+            worksheet.setContent("A1:B2", 1);
+        }
+        assertEquals(before, excel.getApplicationProperties());
+    }
+
+    @Test
+    public void shouldRestoreOnException() {
+        Map<String, Object> before = excel.getApplicationProperties();
+        try (BulkSession session = connection.bulkSession(true)) {
+            worksheet.setContent("A1:XFE2", 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(before, excel.getApplicationProperties());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNoticeWrongCloseOrder() {
+        BulkSession outer = connection.bulkSession();
+        connection.bulkSession();
+        outer.close();
+    }
+
+    @Test
+    public void shouldQueueCallsOnComThread() throws Exception {
+        ComThread comThread = new ComThread("test-com", false);
+        ExcelConnection shared = ExcelConnection.connect(new SimulatedExcel(), comThread);
+        Worksheet sheet = shared.openWorkbook(new File("shared.xlsx")).addWorksheet("shared");
+
+        // the synchronous wrappers can be shared by multiple threads
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            int column = i;
+            writers[i] = new Thread(() -> {
+                for (int row = 0; row < 25; row++) {
+                    sheet.setUnaryContent(row, column, row);
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(24.0, sheet.getUnaryContent(24, 3));
+
+        AsyncWorksheet async = shared.async(sheet);
+        CompletableFuture<Void> written = async.setContent("F1:G1", new Object[][]{ {"a", 2} });
+        CompletableFuture<Object[][]> read = async.getContent("F1:G1");
+        assertArrayEquals(new Object[][]{ {"a", 2.0} }, read.get(5, TimeUnit.SECONDS));
+        assertTrue(written.isDone());
+        // addresses are passed through like Worksheet does
+        assertEquals(2.0, async.getContent("UsedRange").get(5, TimeUnit.SECONDS)[0][6]);
+        async.setContent("H1:H2,J1", new Object[][]{ {1} }).get(5, TimeUnit.SECONDS);
+
+        try {
+            async.submit(ws -> ws.getContent("A1:ZZZZ1")).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RuntimeException);
+        }
+
+        // released after quit without failing
+        ComScope scope = ComScope.open();
+        assertNotNull(sheet.find("a"));
+        shared.quit();
+        scope.close();
+        try {
+            async.getName().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (RejectedExecutionException e) {
+            // thread was stopped
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRequireComThreadForAsync() {
+        connection.async(worksheet);
+    }
+
+    @Test
+    public void shouldSetDifferentColumnLengthContent() {
+        worksheet.setContent("D5:E6", new Object[][]{ {"A22", 123.25}, {54.5} });
+        assertArrayEquals(new Object[][]{ {"A22", 123.25} , {54.5, null} }, worksheet.getContent("D5:E6"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldSetColors() {
+        assertEquals(ExcelColor.XL_NONE, worksheet.getFillColor("A1:B2"));
+        assertEquals(ExcelColor.BLACK, worksheet.getFontColor("A1:B2"));
+        worksheet.setFillColor("A1:B2", ExcelColor.LIGHT_GREEN);
+        worksheet.setFontColor("A1", ExcelColor.RED);
+        worksheet.setBorderColor("A1:B2", ExcelColor.AQUA);
+        assertEquals(ExcelColor.LIGHT_GREEN, worksheet.getFillColor("A1:B2"));
+        assertEquals(ExcelColor.RED, worksheet.getFontColor("A1"));
+        assertEquals(ExcelColor.AQUA, worksheet.getBorderColor("B2"));
+
+        // mixed colors
+        worksheet.getFontColor("A1:B2");
+    }
+
+    @Test
+    public void shouldSetComment() {
+        worksheet.setComment("A1", "test comment");
+        assertEquals("test comment", worksheet.getComment("A1"));
+        worksheet.setComment("A1", "new comment");
+        assertEquals("new comment", worksheet.getComment("A1"));
+    }
+
+    @Test
+    public void shouldFindValue() {
+        Object[][] content = {{"123abc", "äö12ü", "abc123"}};
+        worksheet.setContent("A1:C1", content);
+
+        FindResult fr = worksheet.find("2");
+        assertNotNull(fr);
+        assertEquals(0, fr.getRow());
+        assertEquals(1, fr.getColumn());
+        assertEquals(content[0][1], fr.getContent());
+        assertEquals(content[0][2], fr.next().getContent());
+        assertEquals(content[0][0], fr.next().next().getContent());
+
+        assertNull(worksheet.find("xyz"));
+        assertNull(worksheet.find(new FindOptions().setRange("C4:D6")));
+        assertEquals(content[0][2], worksheet.find(new FindOptions().setValue("abc*").setAfter("A1")).getContent());
+        assertEquals(content[0][0], worksheet.find(new FindOptions().setValue("123ABC").setLookAt(VbaConstant.XL_WHOLE)).getContent());
+        assertNull(worksheet.find(new FindOptions().setValue("123ABC").setMatchCase(true)));
+
+        FindResult fr2 = worksheet.find(new FindOptions().setAfter("B1").setSearchDirection(VbaConstant.XL_PREVIOUS));
+        assertEquals(content[0][0], fr2.getContent());
+        assertEquals(content[0][1], fr2.next().getContent());
+    }
+
+    @Test
+    public void shouldFindAllLocally() {
+        worksheet.setContent("B2:D4", new Object[][]{
+                {"a*b", 12, "xyz"},
+                {"A1B", true, 120.5},
+                {null, "12", "a?b"}
+        });
+
+        assertEquals(refs("C2", "D3", "C4"), worksheet.findAll("12"));
+        assertEquals(refs("C2", "C4"), worksheet.findAll(new FindOptions().setValue("12").setLookAt(VbaConstant.XL_WHOLE)));
+        assertEquals(refs("B3", "C2", "C4", "D3"), worksheet.findAll(new FindOptions().setValue("*1*").setSearchOrder(VbaConstant.XL_BY_COLUMNS)));
+        assertEquals(refs("B2"), worksheet.findAll(new FindOptions().setValue("a~*b")));
+        assertEquals(refs("B3", "D4", "B2"), worksheet.findAll(new FindOptions().setValue("a?b").setLookAt(VbaConstant.XL_WHOLE)));
+        assertEquals(refs("B3"), worksheet.findAll(new FindOptions().setValue("A?B").setMatchCase(true)));
+        assertEquals(refs("C3"), worksheet.findAll(new FindOptions().setValue("true").setLookIn(VbaConstant.XL_VALUES)));
+        assertEquals(refs("C2", "B2", "D4", "C4", "D3", "C3", "B3", "D2"),
+                worksheet.findAll(new FindOptions().setValue("*").setAfter("D2").setSearchDirection(VbaConstant.XL_PREVIOUS)
+                        .setRange("B2:D4")));
+        assertTrue(worksheet.findAll("nothing").isEmpty());
+
+        // fractions are matched in plain notation with 15 significant digits
+        worksheet.setContent("F1:F3", new Object[][]{ {123456789.15}, {0.00001}, {0.1 + 0.2} });
+        assertEquals(refs("F1"), worksheet.findAll(new FindOptions().setValue("*.15").setRange("F1:F3")));
+        assertEquals(refs("F2"), worksheet.findAll(new FindOptions().setValue("0.00001").setRange("F1:F3")));
+        assertEquals(refs("F3"), worksheet.findAll(new FindOptions().setValue("0.3").setLookAt(VbaConstant.XL_WHOLE)
+                .setRange("F1:F3")));
+
+        // date cells are not matched with XL_VALUES
+        worksheet.setUnaryContent("F4", new Date(0));
+        assertEquals(refs("F2", "F3", "F1"), worksheet.findAll(new FindOptions().setValue("*").setLookIn(VbaConstant.XL_VALUES)
+                .setRange("F1:F4")));
+
+        // same cells as Find and FindNext
+        FindOptions options = new FindOptions().setValue("*b*").setAfter("C3");
+        FindResult first = worksheet.find(options);
+        List<CellRef> found = worksheet.findAll(options);
+        FindResult result = first;
+        for (CellRef cell : found) {
+            assertEquals(cell, CellRef.of(result.getRow(), result.getColumn()));
+            result = result.next();
+        }
+        assertEquals(first.getRow(), result.getRow());
+
+        // UsedRange and its Address, Range and its Formula
+        excel.resetCallCount();
+        worksheet.findAll("a");
+        assertEquals(4, excel.getCallCount());
+    }
+
+    @Test
+    public void shouldLookUpRowsInIndex() {
+        worksheet.setContent("A2:B6", new Object[][]{
+                {"id-1", 1}, {"ID-2", 2}, {3, 3}, {"id-1", 4}, {null, 5}
+        });
+        ColumnIndex index = worksheet.buildIndex("A2:A6");
+        excel.resetCallCount();
+        assertArrayEquals(new int[]{1, 4}, index.getRows("id-1"));
+        assertEquals(2, index.getRow("ID-2"));
+        assertEquals(3, index.getRow(3));
+        assertEquals(3, index.getRow(3.0));
+        assertEquals(-1, index.getRow("id-2"));
+        assertEquals(0, index.getRows("missing").length);
+        assertEquals(3, index.size());
+        assertEquals(0, excel.getCallCount());
+
+        // writes through the worksheet update the index
+        worksheet.setUnaryContent("A5", "id-2");
+        worksheet.setContent("A6:B6", new Object[][]{{"id-1", 6}});
+        worksheet.setUnaryContent("B2", "not indexed");
+        assertArrayEquals(new int[]{1, 5}, index.getRows("id-1"));
+        assertEquals(4, index.getRow("id-2"));
+
+        ColumnIndex ignoreCase = worksheet.buildIndex(RangeRef.parse("A2:A6"), true);
+        assertArrayEquals(new int[]{2, 4}, ignoreCase.getRows("Id-2"));
+    }
+
+    @Test
+    public void shouldKeepRowsInvalidAfterFailedIndexRead() {
+        worksheet.setContent("A1:A2", new Object[][]{ {"a"}, {"b"} });
+        ColumnIndex index = worksheet.buildIndex("A1:A2");
+        worksheet.setUnaryContent("A2", "c");
+        excel.setUnavailable(true);
+        for (int i = 0; i < 2; i++) {
+            try {
+                index.getRow("b");
+                fail();
+            } catch (ExcelException e) {
+                assertTrue(e.getMessage().contains("unavailable"));
+            }
+        }
+        excel.setUnavailable(false);
+        assertEquals(-1, index.getRow("b"));
+        assertEquals(1, index.getRow("c"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNoticeMultipleColumnsForIndex() {
+        worksheet.buildIndex("A1:B5");
+    }
+
+    @Test
+    public void shouldApplyFormatBatch() {
+        excel.resetCallCount();
+        try (FormatBatch batch = worksheet.formatBatch()) {
+            // every other cell in 200 rows
+            for (int row = 0; row < 200; row++) {
+                batch.setFillColor(CellRef.of(row, row % 2), ExcelColor.RED);
+            }
+            batch.setFontColor("C1:C50", ExcelColor.BLUE);
+            batch.setFontColor(CellRef.parse("C2"), ExcelColor.GREEN);
+            batch.setBorderColor("D1", ExcelColor.RED);
+            batch.setBorderColor("D1", ExcelColor.GREEN);
+            assertTrue(batch.getPendingAddressCount() < 20);
+            assertEquals(0, excel.getCallCount());
+        }
+        assertTrue(excel.getCallCount() < 60);
+
+        assertEquals(ExcelColor.RED, worksheet.getFillColor("A1"));
+        assertEquals(ExcelColor.RED, worksheet.getFillColor("B200"));
+        assertEquals(ExcelColor.XL_NONE, worksheet.getFillColor("A200"));
+        assertEquals(ExcelColor.BLUE, worksheet.getFontColor("C1"));
+        assertEquals(ExcelColor.GREEN, worksheet.getFontColor("C2"));
+        assertEquals(ExcelColor.BLUE, worksheet.getFontColor("C3:C50"));
+        assertEquals(ExcelColor.GREEN, worksheet.getBorderColor("D1"));
+    }
+
+    @Test
+    public void shouldReadColorMatrixByBisection() {
+        worksheet.setFillColor("A1:J100", ExcelColor.WHITE);
+        worksheet.setFillColor("C7", ExcelColor.RED);
+        worksheet.setFillColor("H81:I81", ExcelColor.YELLOW);
+
+        excel.resetCallCount();
+        ExcelColor[][] colors = worksheet.getFillColorMatrix("A1:J100");
+        // Range, Interior and ColorIndex per part, instead of per cell
+        assertTrue(excel.getCallCount() < 150);
+        assertEquals(100, colors.length);
+        for (int row = 0; row < 100; row++) {
+            for (int column = 0; column < 10; column++) {
+                ExcelColor expected = row == 6 && column == 2 ? ExcelColor.RED
+                        : row == 80 && (column == 7 || column == 8) ? ExcelColor.YELLOW : ExcelColor.WHITE;
+                assertEquals(expected, colors[row][column]);
+            }
+        }
+
+        excel.resetCallCount();
+        assertEquals(ExcelColor.BLACK, worksheet.getFontColorMatrix(RangeRef.parse("A1:J100"))[99][9]);
+        assertEquals(3, excel.getCallCount());
+    }
+
+    @Test
+    public void shouldRecordCallMetrics() throws Exception {
+        CallMetrics metrics = connection.getMetrics();
+        worksheet.setContent("A1:B2", new Object[][]{ {1, 2}, {3, 4} });
+        assertEquals(0, metrics.getCallCount());
+
+        metrics.setEnabled(true);
+        worksheet.setContent("A1:B2", new Object[][]{ {1, 2}, {3, "four"} });
+        worksheet.getContent("A1:B2");
+        try {
+            worksheet.getContent("A1:ZZZZ2");
+            fail();
+        } catch (ExcelException e) {
+            assertEquals(1, metrics.getErrorCount());
+        }
+        assertEquals(Long.valueOf(3), metrics.getCallCounts().get("get Range"));
+        assertEquals(Long.valueOf(1), metrics.getCallCounts().get("put Value"));
+        assertEquals(Long.valueOf(1), metrics.getCallCounts().get("call Value"));
+        assertEquals(4 * 24 + 8, (long) metrics.getMarshaledBytesByMember().get("put Value"));
+        assertEquals(5, metrics.getCallCount());
+        assertEquals(3, metrics.getReport().length);
+        assertTrue(metrics.getLatencyPercentileMicros("put Value", 99) > 0);
+
+        ObjectName name = connection.registerMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(5L, server.getAttribute(name, "CallCount"));
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, metrics.getCallCount());
+
+        ExcelConnection other = ExcelConnection.connect(new SimulatedExcel());
+        ObjectName otherName = other.registerMetrics();
+        assertNotEquals(name, otherName);
+        other.quit();
+        assertFalse(server.isRegistered(otherName));
+    }
+
+    @Test
+    public void shouldTraceCalls() throws Exception {
+        CallTracer tracer = CallTracer.getInstance();
+        tracer.clear();
+        worksheet.getContent("A1:B2");
+        assertTrue(tracer.getEvents().isEmpty());
+
+        tracer.setEnabled(true);
+        try {
+            worksheet.setContent("A1:B2", new Object[][]{ {1, 2}, {3, "four"} });
+            worksheet.getContent("A1:B2");
+        } finally {
+            tracer.setEnabled(false);
+        }
+        List<String> names = new ArrayList<>();
+        long threadId = Thread.currentThread().getId();
+        for (CallTracer.Event event : tracer.getEvents()) {
+            if (event.getThreadId() == threadId) {
+                names.add(event.getName());
+            }
+        }
+        assertEquals(Arrays.asList("Worksheet.setContent", "get Range", "put Value",
+                "Worksheet.getContent", "get Range", "call Value"), names);
+
+        CallTracer.Event put = tracer.getEvents().get(2);
+        assertEquals("dispatch", put.getCategory());
+        assertEquals(4 * 24 + 8, put.getBytes());
+
+        StringWriter trace = new StringWriter();
+        tracer.writeChromeTrace(trace);
+        assertTrue(trace.toString().startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(trace.toString().contains("{\"name\":\"Worksheet.getContent\",\"cat\":\"api\",\"ph\":\"X\""));
+        assertTrue(trace.toString().contains("\"args\":{\"detail\":\"A1:B2\"}"));
+        tracer.clear();
+        assertTrue(tracer.getEvents().isEmpty());
+    }
+
+    @Test
+    public void shouldReleaseTransientObjects() throws Exception {
+        long live = ComScope.getLiveCount();
+        long released = excel.getReleaseCount();
+        worksheet.setContent("A1:B2", new Object[][]{ {1, 2}, {3, 4} });
+        worksheet.getContent("A1:B2");
+        worksheet.setFillColor("A1", ExcelColor.RED);
+        worksheet.getFillColorMatrix("A1:B2");
+        worksheet.findAll("4");
+        assertEquals(live, ComScope.getLiveCount());
+        assertTrue(excel.getReleaseCount() > released);
+
+        try (ComScope scope = ComScope.open()) {
+            connection.getWorkbooks();
+            assertEquals(1, scope.getAcquiredCount());
+            assertEquals(live + 1, ComScope.getLiveCount());
+        }
+        assertEquals(live, ComScope.getLiveCount());
+    }
+
+    @Test
+    public void shouldReleaseAfterCellOfFind() throws Exception {
+        worksheet.setContent("A1:B2", new Object[][]{ {1, 2}, {3, 4} });
+        long live = ComScope.getLiveCount();
+        FindResult result = worksheet.find(new FindOptions().setValue("4").setAfter("A1"));
+        assertEquals(1, result.getRow());
+        // the result and the searched range it keeps for FindNext
+        assertEquals(live + 2, ComScope.getLiveCount());
+        assertNull(worksheet.find("missing"));
+        assertEquals(live + 2, ComScope.getLiveCount());
+    }
+
+    @Test
+    public void shouldCacheHandles() throws Exception {
+        assertSame(worksheet, workbook.getWorksheet("TEST"));
+        assertSame(workbook, connection.getWorkbook("test.xlsx"));
+        Worksheet sheet1 = workbook.getWorksheet("Sheet1");
+        excel.resetCallCount();
+        for (int i = 0; i < 10; i++) {
+            workbook.getWorksheet("test");
+            workbook.getWorksheet("Sheet1");
+        }
+        assertEquals(0, excel.getCallCount());
+        assertSame(workbook, connection.getActiveWorkbook());
+
+        long live = ComScope.getLiveCount();
+        try (ComScope scope = ComScope.open()) {
+            assertSame(sheet1, workbook.getWorksheet("Sheet1"));
+        }
+        assertEquals("Sheet1", sheet1.getName());
+        assertEquals(live, ComScope.getLiveCount());
+
+        worksheet.setName("renamed");
+        assertSame(worksheet, workbook.getWorksheet("renamed"));
+        assertEquals(Arrays.asList("Sheet1", "renamed"), workbook.getWorksheetNames());
+        excel.resetCallCount();
+        workbook.getWorksheetNames();
+        assertEquals(0, excel.getCallCount());
+        try {
+            workbook.getWorksheet("test");
+            fail();
+        } catch (ExcelException e) {
+            assertTrue(e.getMessage().contains("test"));
+        }
+
+        assertTrue(sheet1.delete());
+        assertEquals(live - 1, ComScope.getLiveCount());
+        try {
+            sheet1.getName();
+            fail();
+        } catch (ExcelException e) {
+            assertTrue(e.getMessage().contains("released"));
+        }
+        assertEquals(Arrays.asList("renamed"), workbook.getWorksheetNames());
+
+        Workbook other = connection.newWorkbook(new File("other.xlsx"));
+        assertSame(other, connection.getWorkbook("other.xlsx"));
+        other.close(false);
+        try {
+            connection.getWorkbook("other.xlsx");
+            fail();
+        } catch (ExcelException e) {
+            assertTrue(e.getMessage().contains("other.xlsx"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldCloseScopesInOrder() {
+        ComScope outer = ComScope.open();
+        ComScope inner = ComScope.open();
+        try {
+            outer.close();
+        } finally {
+            inner.close();
+            outer.close();
+        }
+    }
+
+    @Test
+    public void shouldGetUsedBounds() {
+        worksheet.setContent("B2:D4", new Object[][]{ {1, 2, 3}, {4, "=A1", 6}, {7, 8, 9} });
+        excel.resetCallCount();
+        assertEquals(RangeRef.parse("B2:D4"), worksheet.getUsedBounds());
+        assertEquals(2, excel.getCallCount());
+
+        // UsedRange is not shrunk when cells are cleared
+        worksheet.setContent("B4:D4", (Object) null);
+        worksheet.setContent("D2:D4", (Object) null);
+        worksheet.setUnaryContent("B2", null);
+        assertEquals(RangeRef.parse("B2:D4"), worksheet.getUsedBounds(false));
+        assertEquals(RangeRef.parse("B2:C3"), worksheet.getUsedBounds(true));
+
+        Worksheet empty = workbook.addWorksheet("empty");
+        assertEquals(RangeRef.parse("A1"), empty.getUsedBounds());
+        assertNull(empty.getUsedBounds(true));
+    }
+
+    private static List<CellRef> refs(String... cells) {
+        List<CellRef> refs = new ArrayList<>();
+        for (String cell : cells) {
+            refs.add(CellRef.parse(cell));
+        }
+        return refs;
+    }
+
+    @Test
+    public void shouldDelayCalls() {
+        excel.setCallLatency(2, TimeUnit.MILLISECONDS);
+        excel.resetCallCount();
+        long start = System.nanoTime();
+        worksheet.setUnaryContent("A1", 1);
+        long elapsed = System.nanoTime() - start;
+
+        // Range + Value
+        assertEquals(2, excel.getCallCount());
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(4));
+    }
+}
@@ -20,12 +20,26 @@ public class UtilTest {
         assertEquals(26, Util.getPositionInAlphabet('Z'));
     }
 
+    @Test
+    public void shouldFormatNumbersLikeExcel() {
+        assertEquals("12", Util.numberToText(12.0));
+        assertEquals("-3", Util.numberToText(-3.0));
+        assertEquals("120.5", Util.numberToText(120.5));
+        assertEquals("123456789.15", Util.numberToText(123456789.15));
+        assertEquals("0.00001", Util.numberToText(0.00001));
+        assertEquals("0.3", Util.numberToText(0.1 + 0.2));
+        assertEquals("-0.000123", Util.numberToText(-0.000123));
+    }
+
     @Test
     public void shouldGetRangeSize() {
         assertArrayEquals(new int[]{1,1}, Util.getRangeSize("C3"));
         assertArrayEquals(new int[]{2,3}, Util.getRangeSize("A1:C2"));
         assertArrayEquals(new int[]{3,3}, Util.getRangeSize("AA1:AC3"));
         assertArrayEquals(new int[]{3,3}, Util.getRangeSize("AAA1:AAC3"));
+        assertArrayEquals(new int[]{2,3}, Util.getRangeSize("$A$1:$C$2"));
+        assertArrayEquals(new int[]{1048576,3}, Util.getRangeSize("A:C"));
+        assertArrayEquals(new int[]{2,2}, Util.getRangeSize("'Sheet 1'!A1:B2"));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -60,4 +74,18 @@ public class UtilTest {
     public void shouldConvertBoundsToRange() {
         assertEquals("B2:E4", Util.boundsToRange(1,1,3,4));
     }
+
+    @Test
+    public void shouldMatchWildcards() {
+        assertTrue(Util.matchesWildcard("a*c", "abbc", false, true));
+        assertTrue(Util.matchesWildcard("a?c", "abc", false, true));
+        assertFalse(Util.matchesWildcard("a?c", "abbc", false, true));
+        assertTrue(Util.matchesWildcard("b", "abc", false, false));
+        assertFalse(Util.matchesWildcard("b", "abc", false, true));
+        assertTrue(Util.matchesWildcard("ABC", "abc", false, true));
+        assertFalse(Util.matchesWildcard("ABC", "abc", true, true));
+        assertTrue(Util.matchesWildcard("~*", "a*b", false, false));
+        assertFalse(Util.matchesWildcard("~*", "ab", false, false));
+        assertTrue(Util.matchesWildcard("*", "", false, true));
+    }
 }
@@ -0,0 +1,123 @@
+package excelcom.test;
+
+import excelcom.api.BatchReport;
+import excelcom.api.BatchResult;
+import excelcom.api.ExcelConnection;
+import excelcom.api.ExcelConnectionPool;
+import excelcom.api.WorkbookBatch;
+import excelcom.dispatch.ComThread;
+import excelcom.dispatch.SimulatedExcel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the batch processor running on simulated excel instances
+ */
+public class WorkbookBatchTest {
+
+    private final List<SimulatedExcel> instances = Collections.synchronizedList(new ArrayList<>());
+    private ExcelConnectionPool pool;
+
+    private ExcelConnection connect() {
+        SimulatedExcel excel = new SimulatedExcel();
+        instances.add(excel);
+        return ExcelConnection.connect(excel, new ComThread("test-com", false));
+    }
+
+    private static List<File> files(String... names) {
+        List<File> files = new ArrayList<>();
+        for (String name : names) {
+            files.add(new File(name));
+        }
+        return files;
+    }
+
+    @After
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void shouldProcessAllFilesInOrder() {
+        pool = new ExcelConnectionPool(this::connect, 0, 3);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(new File("book" + i + ".xlsx"));
+        }
+        List<String> delivered = new ArrayList<>();
+        BatchReport<String> report = new WorkbookBatch<>(pool, wb -> {
+            wb.addWorksheet("data").setUnaryContent("A1", 1);
+            return wb.getName();
+        }).run(files, result -> delivered.add(result.getValue()));
+
+        assertEquals(20, report.getFileCount());
+        assertEquals(0, report.getFailedCount());
+        assertEquals(0, report.getRetryCount());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencyPercentile(50, TimeUnit.NANOSECONDS) <= report.getLatencyPercentile(100, TimeUnit.NANOSECONDS));
+        for (int i = 0; i < 20; i++) {
+            assertEquals("book" + i + ".xlsx", delivered.get(i));
+            assertEquals("book" + i + ".xlsx", report.getResults().get(i).getValue());
+        }
+        assertTrue(instances.size() <= 3);
+    }
+
+    @Test
+    public void shouldRetryOnInstanceFailure() {
+        pool = new ExcelConnectionPool(this::connect, 1, 1);
+        AtomicBoolean crashed = new AtomicBoolean();
+        BatchReport<String> report = new WorkbookBatch<>(pool, wb -> {
+            if (crashed.compareAndSet(false, true)) {
+                instances.get(0).call("Quit");
+            }
+            return wb.getName();
+        }).run(files("a.xlsx", "b.xlsx"));
+
+        BatchResult<String> first = report.getResults().get(0);
+        assertTrue(first.isSuccess());
+        assertEquals("a.xlsx", first.getValue());
+        assertEquals(2, first.getAttempts());
+        assertEquals(1, report.getRetryCount());
+        assertEquals(2, instances.size());
+    }
+
+    @Test
+    public void shouldReportFailuresAndTimeouts() {
+        pool = new ExcelConnectionPool(this::connect, 0, 2);
+        List<BatchResult<String>> delivered = Collections.synchronizedList(new ArrayList<>());
+        BatchReport<String> report = new WorkbookBatch<>(pool, wb -> {
+            if (wb.getName().equals("slow.xlsx")) {
+                Thread.sleep(500);
+            } else if (wb.getName().equals("broken.xlsx")) {
+                throw new IllegalArgumentException("broken");
+            }
+            return wb.getName();
+        }).setTimeout(50, TimeUnit.MILLISECONDS).setOrdered(false)
+                .run(files("slow.xlsx", "broken.xlsx", "ok.xlsx"), delivered::add);
+
+        assertEquals(3, delivered.size());
+        assertEquals(2, report.getFailedCount());
+        assertTrue(report.getResults().get(0).getError() instanceof TimeoutException);
+        assertTrue(report.getResults().get(1).getError() instanceof IllegalArgumentException);
+        assertEquals(1, report.getResults().get(1).getAttempts());
+        assertEquals("ok.xlsx", report.getResults().get(2).getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeTimeout() {
+        pool = new ExcelConnectionPool(this::connect, 0, 1);
+        new WorkbookBatch<>(pool, wb -> wb.getName()).setTimeout(-1, TimeUnit.SECONDS);
+    }
+}